@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Uncompresses a <tt>STORE_ADAPTIVE</tt> file as it is read, keeping the same
+ * adaptive Huffman tree as the AdaptiveHuffmanOutputStream that wrote it. Bytes are
+ * read from the underlying stream only as they are needed, so every byte flushed by
+ * the writer can be read as soon as it arrives.
+ */
+public class AdaptiveHuffmanInputStream extends InputStream implements IHuffConstants {
+
+	private final InputStream in;
+	private final AdaptiveHuffmanTree tree;
+	private int bits;
+	private int bitCount;
+	private boolean ended;
+
+	/**
+	 * Creates an AdaptiveHuffmanInputStream and reads the magic number and header format.
+	 * @param in, the stream holding the compressed bytes.
+	 * @throws IOException if the stream does not start with a STORE_ADAPTIVE header.
+	 */
+	public AdaptiveHuffmanInputStream(InputStream in) throws IOException {
+		this(in, false);
+	}
+
+	/**
+	 * Creates an AdaptiveHuffmanInputStream.
+	 * @param in, the stream holding the compressed bytes.
+	 * @param headerRead, true if the magic number and header format have already been
+	 * read from the stream, false to read and check them.
+	 * @throws IOException if the header is read and is not a STORE_ADAPTIVE header.
+	 */
+	public AdaptiveHuffmanInputStream(InputStream in, boolean headerRead) throws IOException {
+		this.in = in;
+		tree = new AdaptiveHuffmanTree();
+		if (!headerRead && (readBits(BITS_PER_INT) != MAGIC_NUMBER
+				|| readBits(BITS_PER_INT) != STORE_ADAPTIVE)) {
+			throw new IOException("This data cannot be uncompressed as it does not"
+					+ " start with an adaptive Huffman header.");
+		}
+	}
+
+	public int read() throws IOException {
+		while (!ended) {
+			int symbol = readSymbol();
+			if (symbol == AdaptiveHuffmanTree.END) {
+				ended = true;
+			} else if (symbol == AdaptiveHuffmanTree.FLUSH) {
+				//the rest of the byte is padding
+				bitCount = 0;
+			} else {
+				return symbol;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads up to len bytes, stopping early at a flush so bytes that have been
+	 * flushed are returned without waiting for more.
+	 * @return the number of bytes read, or -1 at the end of the data.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int count = 0;
+		while (count < len && !ended) {
+			int symbol = readSymbol();
+			if (symbol == AdaptiveHuffmanTree.END) {
+				ended = true;
+			} else if (symbol == AdaptiveHuffmanTree.FLUSH) {
+				bitCount = 0;
+				if (count > 0) {
+					break;
+				}
+			} else {
+				b[off + count++] = (byte) symbol;
+			}
+		}
+		return count == 0 && ended ? -1 : count;
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * @throws IOException if the stream cannot be closed.
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Helper method that reads the coding of one symbol and updates the tree.
+	 * @return the symbol read.
+	 * @throws IOException if the input runs out or a new symbol is bad.
+	 */
+	private int readSymbol() throws IOException {
+		int node = tree.root();
+		while (!tree.isLeaf(node)) {
+			node = tree.getChild(node, readBits(1));
+		}
+		int symbol = tree.getSymbol(node);
+		if (node == tree.nyt()) {
+			//a new symbol follows the coding of the NYT leaf
+			symbol = readBits(AdaptiveHuffmanTree.BITS_PER_SYMBOL);
+			if (symbol >= AdaptiveHuffmanTree.SYMBOL_COUNT || tree.contains(symbol)) {
+				throw new IOException("Format of file is bad, new symbol is not new.");
+			}
+		}
+		tree.update(symbol);
+		return symbol;
+	}
+
+	/**
+	 * Helper method that reads bits, reading a byte from the stream only when needed.
+	 * @param howManyBits, the number of bits to read, at most 32.
+	 * @return the bits read.
+	 * @throws IOException if the input runs out.
+	 */
+	private int readBits(int howManyBits) throws IOException {
+		int value = 0;
+		for (int i = 0; i < howManyBits; i++) {
+			if (bitCount == 0) {
+				bits = in.read();
+				if (bits == -1) {
+					throw new IOException("Format of file is bad, ran out of bits.");
+				}
+				bitCount = BITS_PER_WORD;
+			}
+			bitCount--;
+			value = (value << 1) | ((bits >>> bitCount) & 1);
+		}
+		return value;
+	}
+}
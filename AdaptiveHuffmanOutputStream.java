@@ -0,0 +1,101 @@
+import java.io.OutputStream;
+
+/**
+ * Compresses bytes as they are written with an adaptive Huffman code, see
+ * <code>AdaptiveHuffmanTree</code>. Nothing needs to be known about the data before
+ * it is written, so this works on streams without an end. The output is a
+ * <tt>STORE_ADAPTIVE</tt> file that any HuffProcessor can uncompress.
+ * <P>
+ * <code>flush</code> pads the coded bytes to a whole byte with a FLUSH symbol and
+ * sends them on, so a reader gets every byte written so far right away.
+ */
+public class AdaptiveHuffmanOutputStream extends OutputStream implements IHuffConstants {
+
+	private final BitOutputStream bos;
+	private final AdaptiveHuffmanTree tree;
+	private final int[] code;
+	private long bitsWritten;
+	private boolean closed;
+
+	/**
+	 * Creates an AdaptiveHuffmanOutputStream and writes the magic number and header format.
+	 * @param out, the stream to write the compressed bytes to.
+	 */
+	public AdaptiveHuffmanOutputStream(OutputStream out) {
+		bos = new BitOutputStream(out);
+		tree = new AdaptiveHuffmanTree();
+		code = new int[AdaptiveHuffmanTree.SYMBOL_COUNT + 1];
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		bos.writeBits(BITS_PER_INT, STORE_ADAPTIVE);
+		bitsWritten = 2 * BITS_PER_INT;
+	}
+
+	public void write(int b) {
+		writeSymbol(b & 0xff);
+	}
+
+	public void write(byte[] b, int off, int len) {
+		for (int i = off; i < off + len; i++) {
+			writeSymbol(b[i] & 0xff);
+		}
+	}
+
+	/**
+	 * Writes a FLUSH symbol, pads to a whole byte and flushes every byte written so far.
+	 */
+	public void flush() {
+		if (closed) {
+			return;
+		}
+		writeSymbol(AdaptiveHuffmanTree.FLUSH);
+		bos.flush();
+		bitsWritten = (bitsWritten + BITS_PER_WORD - 1) / BITS_PER_WORD * BITS_PER_WORD;
+	}
+
+	/**
+	 * Writes the END symbol and closes the stream.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		writeSymbol(AdaptiveHuffmanTree.END);
+		closed = true;
+		bos.close();
+	}
+
+	/**
+	 * Finds the number of bits written so far, including the header.
+	 * @return the number of bits written.
+	 */
+	public long bitsWritten() {
+		return bitsWritten;
+	}
+
+	/**
+	 * Helper method that writes the coding of one symbol and updates the tree.
+	 * @param symbol, the symbol to write.
+	 */
+	private void writeSymbol(int symbol) {
+		if (closed) {
+			throw new IllegalStateException("stream is closed");
+		}
+		int length = tree.getCode(symbol, code);
+		//writes the bits of the coding a whole int at a time
+		for (int start = 0; start < length; start += Integer.SIZE) {
+			int count = Math.min(Integer.SIZE, length - start);
+			int bits = 0;
+			for (int i = start; i < start + count; i++) {
+				bits = (bits << 1) | code[i];
+			}
+			bos.writeBits(count, bits);
+		}
+		bitsWritten += length;
+		if (!tree.contains(symbol)) {
+			//a new symbol follows the coding of the NYT leaf
+			bos.writeBits(AdaptiveHuffmanTree.BITS_PER_SYMBOL, symbol);
+			bitsWritten += AdaptiveHuffmanTree.BITS_PER_SYMBOL;
+		}
+		tree.update(symbol);
+	}
+}
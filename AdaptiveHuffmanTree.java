@@ -0,0 +1,210 @@
+/**
+ * A Huffman tree that is updated after every symbol with the FGK algorithm, so an
+ * encoder and decoder that see the same symbols keep the same tree without any
+ * header or counting pass. Symbols not seen yet are coded with the coding of the
+ * NYT (not yet transmitted) leaf followed by the symbol itself.
+ * <P>
+ * Nodes are kept in arrays by node number. Node numbers grow with weight and every
+ * node's number is below its parent's, the sibling property, so a node's block of
+ * equal weight nodes is a run of consecutive numbers. The arrays hold every node the
+ * tree can ever have, so updates never allocate.
+ */
+public class AdaptiveHuffmanTree implements IHuffConstants {
+
+	/**
+	 * The symbol that ends the data.
+	 */
+	public static final int END = PSEUDO_EOF;
+
+	/**
+	 * The symbol that pads the coded data to a whole byte so it can be sent right away.
+	 */
+	public static final int FLUSH = PSEUDO_EOF + 1;
+
+	/**
+	 * The number of symbols, every byte value plus END and FLUSH.
+	 */
+	public static final int SYMBOL_COUNT = FLUSH + 1;
+
+	/**
+	 * The number of bits of a symbol written after the NYT coding.
+	 */
+	public static final int BITS_PER_SYMBOL = BITS_PER_WORD + 1;
+
+	//every symbol has a leaf and an internal node above it, plus the NYT leaf
+	private static final int NODE_COUNT = 2 * SYMBOL_COUNT + 1;
+	private static final int ROOT = NODE_COUNT - 1;
+	private static final int NONE = -1;
+
+	private final long[] weight;
+	private final int[] parent;
+	private final int[] left;
+	private final int[] right;
+	private final int[] symbol;
+	private final int[] leafOf;
+	private int nyt;
+
+	/**
+	 * Creates a tree that holds only the NYT leaf.
+	 */
+	public AdaptiveHuffmanTree() {
+		weight = new long[NODE_COUNT];
+		parent = new int[NODE_COUNT];
+		left = new int[NODE_COUNT];
+		right = new int[NODE_COUNT];
+		symbol = new int[NODE_COUNT];
+		leafOf = new int[SYMBOL_COUNT];
+		for (int i = 0; i < SYMBOL_COUNT; i++) {
+			leafOf[i] = NONE;
+		}
+		nyt = ROOT;
+		makeLeaf(ROOT, NONE, NONE);
+	}
+
+	/**
+	 * @return the node number of the root.
+	 */
+	public int root() {
+		return ROOT;
+	}
+
+	/**
+	 * @return the node number of the NYT leaf.
+	 */
+	public int nyt() {
+		return nyt;
+	}
+
+	/**
+	 * @param node, the node number.
+	 * @return true if the node is a leaf, false if it has children.
+	 */
+	public boolean isLeaf(int node) {
+		return left[node] == NONE;
+	}
+
+	/**
+	 * @param node, the node number of a leaf.
+	 * @return the symbol of the leaf, -1 for the NYT leaf.
+	 */
+	public int getSymbol(int node) {
+		return symbol[node];
+	}
+
+	/**
+	 * @param node, the node number of an internal node.
+	 * @param bit, 0 for the left child or 1 for the right child.
+	 * @return the node number of the child.
+	 */
+	public int getChild(int node, int bit) {
+		return bit == 0 ? left[node] : right[node];
+	}
+
+	/**
+	 * Finds the coding of a symbol, or of the NYT leaf if the symbol is not in the tree.
+	 * @param s, the symbol to find the coding of.
+	 * @param bits, the array to store each bit of the coding in from the root down,
+	 * at least SYMBOL_COUNT + 1 long.
+	 * @return the number of bits in the coding.
+	 */
+	public int getCode(int s, int[] bits) {
+		int node = leafOf[s] == NONE ? nyt : leafOf[s];
+		int length = 0;
+		while (node != ROOT) {
+			int up = parent[node];
+			bits[length++] = right[up] == node ? 1 : 0;
+			node = up;
+		}
+		//the bits were found from the leaf up
+		for (int i = 0, j = length - 1; i < j; i++, j--) {
+			int bit = bits[i];
+			bits[i] = bits[j];
+			bits[j] = bit;
+		}
+		return length;
+	}
+
+	/**
+	 * @param s, the symbol.
+	 * @return true if the symbol has a leaf, false if it is coded through the NYT leaf.
+	 */
+	public boolean contains(int s) {
+		return leafOf[s] != NONE;
+	}
+
+	/**
+	 * Adds one to the weight of a symbol, adding it to the tree if it is new, and moves
+	 * nodes so the tree stays a Huffman tree.
+	 * @param s, the symbol that was just coded.
+	 */
+	public void update(int s) {
+		int node = leafOf[s];
+		if (node == NONE) {
+			//the NYT leaf becomes the parent of a new NYT leaf and a leaf for the symbol
+			int old = nyt;
+			nyt = old - 2;
+			makeLeaf(nyt, old, NONE);
+			makeLeaf(old - 1, old, s);
+			leafOf[s] = old - 1;
+			left[old] = nyt;
+			right[old] = old - 1;
+			node = old - 1;
+		}
+		while (node != NONE) {
+			//finds the highest numbered node of the same weight
+			int leader = node;
+			while (leader < ROOT && weight[leader + 1] == weight[node]) {
+				leader++;
+			}
+			if (leader != node && leader != parent[node]) {
+				swap(node, leader);
+				node = leader;
+			}
+			weight[node]++;
+			node = parent[node];
+		}
+	}
+
+	/**
+	 * Helper method that sets up a node as a leaf of no weight.
+	 */
+	private void makeLeaf(int node, int up, int s) {
+		weight[node] = 0;
+		parent[node] = up;
+		left[node] = NONE;
+		right[node] = NONE;
+		symbol[node] = s;
+	}
+
+	/**
+	 * Helper method for update that swaps the subtrees at two node numbers of the same
+	 * weight. Each node number keeps its parent.
+	 */
+	private void swap(int a, int b) {
+		int temp = left[a];
+		left[a] = left[b];
+		left[b] = temp;
+		temp = right[a];
+		right[a] = right[b];
+		right[b] = temp;
+		temp = symbol[a];
+		symbol[a] = symbol[b];
+		symbol[b] = temp;
+		relink(a);
+		relink(b);
+	}
+
+	/**
+	 * Helper method for swap that points whatever now hangs from a node number back at it.
+	 */
+	private void relink(int node) {
+		if (!isLeaf(node)) {
+			parent[left[node]] = node;
+			parent[right[node]] = node;
+		} else if (symbol[node] != NONE) {
+			leafOf[symbol[node]] = node;
+		} else {
+			nyt = node;
+		}
+	}
+}
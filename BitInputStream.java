@@ -1,9 +1,9 @@
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads bits-at-a-time where the number of bits is between 1 and 32.
@@ -18,6 +18,11 @@ import java.io.InputStream;
  * of <code>InputStream</code> requires throwing as another type of exception, e.g.,
  * as with method <code>read</code>.
  * <P>
+ * Input is read into an internal byte buffer many bytes at a time and bits
+ * are served from a 64-bit buffer refilled from it. Bits can be looked at
+ * without being consumed using <code>peekBits</code>, which together with
+ * <code>skipBits</code> supports table-driven decoding.
+ * <P>
  * @author Owen Astrachan
  * @version 1.0, July 2000
  * @version 2.0, October 2004
@@ -26,19 +31,17 @@ import java.io.InputStream;
 public class BitInputStream extends InputStream {
 
     private InputStream     myInput;
-    private int             myBitCount;
-    private int             myBuffer;
+    private ByteBuffer      mySource;
     private File            myFile;
-    
-    private static final int bmask[] = {
-        0x00, 0x01, 0x03, 0x07, 0x0f, 0x1f, 0x3f, 0x7f, 0xff,
-        0x1ff,0x3ff,0x7ff,0xfff,0x1fff,0x3fff,0x7fff,0xffff,
-        0x1ffff,0x3ffff,0x7ffff,0xfffff,0x1fffff,0x3fffff,
-        0x7fffff,0xffffff,0x1ffffff,0x3ffffff,0x7ffffff,
-        0xfffffff,0x1fffffff,0x3fffffff,0x7fffffff,0xffffffff
-    };
+    private byte[]          myBytes;
+    private int             myPos;
+    private int             myLimit;
+    private boolean         myEndOfInput;
+    private long            myBits;
+    private int             myBitCount;
 
     private static final int BITS_PER_BYTE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
     
     /**
      * Construct a bit-at-a-time input stream from a file whose
@@ -72,6 +75,26 @@ public class BitInputStream extends InputStream {
     public BitInputStream(InputStream in) {
         myInput = in;
         myFile = null;
+        myBytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Open a bit-at-a-time stream that reads the remaining bytes of the supplied
+     * buffer. A buffer backed by an array is read in place, other buffers are
+     * copied in chunks. The BitInputStream is not reset-able.
+     * @param source is the buffer from which bits are read.
+     */
+    public BitInputStream(ByteBuffer source) {
+        mySource = source;
+        myFile = null;
+        if (source.hasArray()) {
+            myBytes = source.array();
+            myPos = source.arrayOffset() + source.position();
+            myLimit = source.arrayOffset() + source.limit();
+            source.position(source.limit());
+        } else {
+            myBytes = new byte[BUFFER_SIZE];
+        }
     }
     
     /**
@@ -93,11 +116,17 @@ public class BitInputStream extends InputStream {
             throw new IOException("not resettable");
         } try {
             close();
-            myInput = new BufferedInputStream(new FileInputStream(myFile));
+            myInput = new FileInputStream(myFile);
         } catch (FileNotFoundException fnf){
             System.err.println("error opening " + myFile.getName() + " " + fnf);
         }
-        myBuffer = myBitCount = 0;
+        if (myBytes == null) {
+            myBytes = new byte[BUFFER_SIZE];
+        }
+        myPos = myLimit = 0;
+        myEndOfInput = false;
+        myBits = 0;
+        myBitCount = 0;
     } 
 
     /**
@@ -125,30 +154,72 @@ public class BitInputStream extends InputStream {
      */
 
     public int readBits(int howManyBits) throws IOException {
-        int retval = 0;
-        if (myInput == null){
+        if (myInput == null && mySource == null){
             return -1;
         }
         
-        while (howManyBits > myBitCount){
-            retval |= ( myBuffer << (howManyBits - myBitCount) );
+        if (howManyBits > myBitCount) {
+            refill();
+            if (howManyBits > myBitCount) {
+                myBitCount = 0;
+                return -1;
+            }
+        }
+        myBitCount -= howManyBits;
+        return (int) ((myBits >>> myBitCount) & ((1L << howManyBits) - 1));
+    }
+
+    /**
+     * Returns the next bits as rightmost bits in returned value without
+     * consuming them. Bits past the end of the input are read as 0.
+     *
+     * @param howManyBits is the number of bits to look at (1-32)
+     * @return the value of the next <code>howManyBits</code> bits
+     */
+    public int peekBits(int howManyBits) throws IOException {
+        if (howManyBits > myBitCount) {
+            refill();
+            if (howManyBits > myBitCount) {
+                return (int) ((myBits << (howManyBits - myBitCount)) & ((1L << howManyBits) - 1));
+            }
+        }
+        return (int) ((myBits >>> (myBitCount - howManyBits)) & ((1L << howManyBits) - 1));
+    }
+
+    /**
+     * Consumes the next bits without returning them.
+     *
+     * @param howManyBits is the number of bits to skip
+     * @throws IOException if fewer than <code>howManyBits</code> bits are left
+     */
+    public void skipBits(long howManyBits) throws IOException {
+        while (howManyBits > myBitCount) {
             howManyBits -= myBitCount;
-            try {
-                if ( (myBuffer = myInput.read()) == -1) {
-                    return -1;
-                }
-            } catch (IOException ioe) {
-                throw new IOException("bitreading trouble "+ioe);
+            myBitCount = 0;
+            refill();
+            if (myBitCount == 0) {
+                throw new IOException("bitreading trouble, unexpected end of input");
             }
-            myBitCount = BITS_PER_BYTE;
         }
+        myBitCount -= howManyBits;
+    }
 
-        if (howManyBits > 0) {
-            retval |= myBuffer >> (myBitCount - howManyBits);
-            myBuffer &= bmask[myBitCount - howManyBits];
-            myBitCount -= howManyBits;
+    /**
+     * Returns the number of bits that can still be read. This is exact when
+     * reading from a file or a ByteBuffer, otherwise it counts buffered bits
+     * plus the bytes the underlying stream reports as available, and so may be
+     * less than the number of bits left.
+     *
+     * @return the number of bits left to read
+     */
+    public long bitsRemaining() throws IOException {
+        long remaining = myBitCount + (long) (myLimit - myPos) * BITS_PER_BYTE;
+        if (mySource != null) {
+            remaining += (long) mySource.remaining() * BITS_PER_BYTE;
+        } else if (myInput != null && !myEndOfInput) {
+            remaining += (long) myInput.available() * BITS_PER_BYTE;
         }
-        return retval;
+        return remaining;
     }
 
     /**
@@ -159,7 +230,79 @@ public class BitInputStream extends InputStream {
     public int read() throws IOException {
         return readBits(BITS_PER_BYTE);
     }
-}
 
+    /**
+     * Reads up to <code>len</code> bytes, 8 bits per byte, into <code>b</code>.
+     * When the bits read so far fill a whole number of bytes the bytes are
+     * copied directly from the internal buffer.
+     * @return the number of bytes read, or -1 if no bytes are left
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        // bytes already in the bit buffer, or every byte if not byte aligned
+        while (count < len && myBitCount > 0) {
+            int value = readBits(BITS_PER_BYTE);
+            if (value == -1) {
+                return count == 0 ? -1 : count;
+            }
+            b[off + count++] = (byte) value;
+        }
+        while (count < len) {
+            if (myPos == myLimit && !fill()) {
+                break;
+            }
+            int chunk = Math.min(len - count, myLimit - myPos);
+            System.arraycopy(myBytes, myPos, b, off + count, chunk);
+            myPos += chunk;
+            count += chunk;
+        }
+        return count == 0 ? -1 : count;
+    }
 
+    /*
+     * Move bytes into the bit buffer until it holds more than 56 bits
+     * or the input runs out.
+     */
+    private void refill() throws IOException {
+        while (myBitCount <= Long.SIZE - BITS_PER_BYTE) {
+            if (myPos == myLimit && !fill()) {
+                return;
+            }
+            myBits = (myBits << BITS_PER_BYTE) | (myBytes[myPos++] & 0xff);
+            myBitCount += BITS_PER_BYTE;
+        }
+    }
 
+    /*
+     * Refill the byte buffer from the source. Return false if
+     * no bytes are left.
+     */
+    private boolean fill() throws IOException {
+        if (myEndOfInput) {
+            return false;
+        }
+        int count = 0;
+        if (mySource != null) {
+            if (!mySource.hasArray()) {
+                count = Math.min(mySource.remaining(), myBytes.length);
+                mySource.get(myBytes, 0, count);
+            }
+        } else if (myInput != null) {
+            try {
+                count = myInput.read(myBytes, 0, myBytes.length);
+            } catch (IOException ioe) {
+                throw new IOException("bitreading trouble "+ioe);
+            }
+        }
+        if (count <= 0) {
+            myEndOfInput = true;
+            return false;
+        }
+        myPos = 0;
+        myLimit = count;
+        return true;
+    }
+}
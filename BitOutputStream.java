@@ -1,11 +1,11 @@
-import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
- * Write bits-at-a-time where the number of bits is between 1 and 32
+ * Write bits-at-a-time where the number of bits is between 1 and 64
  * Client programs must call <code>flush</code> or
  * <code>close</code> when finished writing or not all bits will be written.
  * This class is intended to be used with <code>BitInputStream</code> to
@@ -13,6 +13,12 @@ import java.io.OutputStream;
  * <P>
  * Updated for version 2.0 to extend java.io.OutputStream
  * <P>
+ * Bits are collected in a 64-bit accumulator and completed bytes are stored in
+ * an internal buffer that is written to the underlying stream in large batches,
+ * or put straight into the ByteBuffer the stream was made with.
+ * Bits are written most significant bit first, the same order as all earlier
+ * versions.
+ * <P>
  * Any exceptions generated are rethrown as <code>RuntimeException</code> objects
  * so client code does not have to catch or rethrow them.
  * <P>
@@ -24,25 +30,35 @@ import java.io.OutputStream;
 public class BitOutputStream extends OutputStream {
    
     private OutputStream  myOutput;
-    private int myBuffer;
-    private int myBitsToGo;
-    
-    private static final int bmask[] = {
-        0x00, 0x01, 0x03, 0x07, 0x0f, 0x1f, 0x3f, 0x7f, 0xff,
-        0x1ff,0x3ff,0x7ff,0xfff,0x1fff,0x3fff,0x7fff,0xffff,
-        0x1ffff,0x3ffff,0x7ffff,0xfffff,0x1fffff,0x3fffff,
-        0x7fffff,0xffffff,0x1ffffff,0x3ffffff,0x7ffffff,
-        0xfffffff,0x1fffffff,0x3fffffff,0x7fffffff,0xffffffff
-    };
+    private ByteBuffer myBuffer;
+    private long myAccumulator;
+    private int myBitCount;
+    private byte[] myBytes;
+    private int myByteCount;
 
     private static final int BITS_PER_BYTE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The most bits that can be added to the accumulator in one step. Writes
+     * of more bits than this (up to 64) are split in two.
+     */
+    public static final int MAX_BITS_PER_WRITE = Long.SIZE - BITS_PER_BYTE + 1;
 
     /**
      * Required by OutputStream subclasses, write the low
-     * 8-bits to the underlying outputstream
+     * 8-bits to the stream
+     */
+    public void write(int b) {
+        writeBits(BITS_PER_BYTE, b);
+    }
+
+    /**
+     * Write <code>len</code> bytes from <code>b</code> starting at <code>off</code>.
+     * Same as <code>writeBytes</code>.
      */
-    public void write(int b) throws IOException {
-        myOutput.write(b);
+    public void write(byte[] b, int off, int len) {
+        writeBytes(b, off, len);
     }
     
     /**
@@ -55,9 +71,24 @@ public class BitOutputStream extends OutputStream {
         initialize();
     }
     
+    /**
+     * Create a stream that puts completed bytes directly into a buffer, starting
+     * at its position, without an internal buffer or any other copy.
+     * @param dst is the buffer bytes are put in, its position is moved past them
+     * @throws java.nio.BufferOverflowException if the buffer runs out of room
+     */
+    public BitOutputStream(ByteBuffer dst) {
+        myBuffer = dst;
+        myAccumulator = 0;
+        myBitCount = 0;
+        myByteCount = 0;
+    }
+    
     private void initialize() {
-        myBuffer = 0;
-        myBitsToGo = BITS_PER_BYTE;
+        myAccumulator = 0;
+        myBitCount = 0;
+        myBytes = new byte[BUFFER_SIZE];
+        myByteCount = 0;
     }
     
     /**
@@ -69,7 +100,7 @@ public class BitOutputStream extends OutputStream {
      */
     public BitOutputStream(String filename) {
         try {
-            myOutput = new BufferedOutputStream(new FileOutputStream(filename)); 
+            myOutput = new FileOutputStream(filename); 
         } catch (FileNotFoundException fnf) {
             throw new RuntimeException("could not create " + filename + " " + fnf);
         } catch(SecurityException se) {
@@ -81,18 +112,20 @@ public class BitOutputStream extends OutputStream {
 
     /**
      * Flushes bits not yet written, must be called by client
-     * programs if <code>close</code> isn't called.
+     * programs if <code>close</code> isn't called. If the bits written
+     * do not fill a whole byte the last byte is padded with zeros.
      * @throws RuntimeException if there's a problem writing bits
      */
     public void flush() {
-        if (myBitsToGo != BITS_PER_BYTE) {
-            try {
-                write( (myBuffer << myBitsToGo) );
-            } catch (java.io.IOException ioe){
-                throw new RuntimeException("error writing bits on flush " + ioe);
-            }
-            myBuffer = 0;
-            myBitsToGo = BITS_PER_BYTE;
+        drain();
+        if (myBitCount > 0) {
+            putByte((int) (myAccumulator << (BITS_PER_BYTE - myBitCount)));
+            myAccumulator = 0;
+            myBitCount = 0;
+        }
+        flushBuffer();
+        if (myOutput == null) {
+            return;
         }
                 
         try {
@@ -110,6 +143,9 @@ public class BitOutputStream extends OutputStream {
      */
     public void close() {
         flush();
+        if (myOutput == null) {
+            return;
+        }
         try {
             myOutput.close();
         } catch (IOException ioe){
@@ -119,31 +155,150 @@ public class BitOutputStream extends OutputStream {
 
     /**
      * Write specified number of bits from value to a file.
-     * @param howManyBits is number of bits to write (1-32)
+     * @param howManyBits is number of bits to write (0-32)
      * @param value is source of bits, rightmost bits are written
      * @throws RuntimeException if there's an I/O problem writing bits
      */
     public void writeBits(int howManyBits, int value) {
-        value &= bmask[howManyBits];  // only right most bits valid
+        writeBits(howManyBits, value & 0xffffffffL);
+    }
+
+    /**
+     * Write specified number of bits from value to a file.
+     * @param howManyBits is number of bits to write (0-64)
+     * @param value is source of bits, rightmost bits are written
+     * @throws RuntimeException if there's an I/O problem writing bits
+     */
+    public void writeBits(int howManyBits, long value) {
+        if (howManyBits > MAX_BITS_PER_WRITE) {
+            writeBits(howManyBits - Integer.SIZE, value >>> Integer.SIZE);
+            howManyBits = Integer.SIZE;
+        }
+        if (howManyBits > 0) {
+            if (myBitCount + howManyBits > Long.SIZE) {
+                drain();
+            }
+            value &= -1L >>> (Long.SIZE - howManyBits);  // only right most bits valid
+            myAccumulator = (myAccumulator << howManyBits) | value;
+            myBitCount += howManyBits;
+        }
+    }
+
+    /**
+     * Write several codes in order, code <code>i</code> being the rightmost
+     * <code>lengths[i]</code> bits of <code>codes[i]</code>.
+     * @param codes holds the bits of each code
+     * @param lengths holds the number of bits (0-64) in each code
+     * @param offset is the index of the first code written
+     * @param count is the number of codes written
+     * @throws RuntimeException if there's an I/O problem writing bits
+     */
+    public void writeCodes(long[] codes, int[] lengths, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            writeBits(lengths[i], codes[i]);
+        }
+    }
 
-        while (howManyBits >= myBitsToGo) {
-            myBuffer = (myBuffer << myBitsToGo) |
-                       (value >> (howManyBits - myBitsToGo));
+    /**
+     * Write <code>len</code> bytes from <code>b</code> starting at <code>off</code>,
+     * 8 bits per byte. If the bits written so far fill a whole number of bytes the
+     * bytes are copied directly without going through the accumulator.
+     * @param b holds the bytes to write
+     * @param off is the index of the first byte written
+     * @param len is the number of bytes written
+     * @throws RuntimeException if there's an I/O problem writing bits
+     */
+    public void writeBytes(byte[] b, int off, int len) {
+        if (myBitCount % BITS_PER_BYTE != 0) {
+            for (int i = off; i < off + len; i++) {
+                writeBits(BITS_PER_BYTE, b[i] & 0xff);
+            }
+            return;
+        }
+        drain();
+        if (myBuffer != null) {
+            myBuffer.put(b, off, len);
+            return;
+        }
+        if (len >= myBytes.length) {
+            // too big to be worth buffering
+            flushBuffer();
             try {
-                write(myBuffer);    
-            } catch (java.io.IOException ioe){
-                throw new RuntimeException("error writing bits " + ioe);
+                myOutput.write(b, off, len);
+            } catch (IOException ioe) {
+                throw new RuntimeException("error writing bytes " + ioe);
+            }
+            return;
+        }
+        while (len > 0) {
+            int chunk = Math.min(len, myBytes.length - myByteCount);
+            System.arraycopy(b, off, myBytes, myByteCount, chunk);
+            myByteCount += chunk;
+            off += chunk;
+            len -= chunk;
+            if (myByteCount == myBytes.length) {
+                flushBuffer();
+            }
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer, 8 bits per byte, copying them in one go
+     * when the bits written so far fill a whole number of bytes. The buffer's
+     * position is not changed.
+     * @param src holds the bytes to write
+     * @throws RuntimeException if there's an I/O problem writing bits
+     */
+    public void writeBytes(ByteBuffer src) {
+        ByteBuffer data = src.duplicate();
+        if (myBuffer != null && myBitCount % BITS_PER_BYTE == 0) {
+            drain();
+            myBuffer.put(data);
+        } else if (data.hasArray()) {
+            writeBytes(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            // a direct or mapped buffer is copied in chunks
+            byte[] chunk = new byte[Math.min(data.remaining(), BUFFER_SIZE)];
+            while (data.hasRemaining()) {
+                int len = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, len);
+                writeBytes(chunk, 0, len);
             }
+        }
+    }
 
-            value &= bmask[howManyBits - myBitsToGo];
-            howManyBits -= myBitsToGo;
-            myBitsToGo = BITS_PER_BYTE;
-            myBuffer = 0;
+    /*
+     * Move all whole bytes from the accumulator to the byte buffer,
+     * leaving fewer than 8 bits in the accumulator.
+     */
+    private void drain() {
+        while (myBitCount >= BITS_PER_BYTE) {
+            myBitCount -= BITS_PER_BYTE;
+            putByte((int) (myAccumulator >>> myBitCount));
         }
-        
-        if (howManyBits > 0) {
-            myBuffer = (myBuffer << howManyBits) | value;
-            myBitsToGo -= howManyBits;
+    }
+
+    // Add one byte to the byte buffer, writing the buffer out when full.
+    private void putByte(int b) {
+        if (myBuffer != null) {
+            myBuffer.put((byte) b);
+            return;
+        }
+        myBytes[myByteCount++] = (byte) b;
+        if (myByteCount == myBytes.length) {
+            flushBuffer();
+        }
+    }
+
+    // Write the byte buffer to the underlying stream.
+    private void flushBuffer() {
+        if (myByteCount > 0) {
+            try {
+                myOutput.write(myBytes, 0, myByteCount);
+            } catch (IOException ioe) {
+                throw new RuntimeException("error writing bits " + ioe);
+            }
+            myByteCount = 0;
         }
     }
 }
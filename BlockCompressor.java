@@ -0,0 +1,422 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compresses a stream in a single pass as a series of independent blocks, each with
+ * its own canonical code. Input is read exactly once and memory use is bounded by
+ * the block size, so streams that cannot be read twice, such as pipes and sockets,
+ * can be compressed.
+ * <P>
+ * A block file starts with <code>MAGIC_NUMBER</code>, <code>STORE_BLOCKS</code> and
+ * the block size as 32 bit ints. Each block is byte aligned and starts with an 8 bit
+ * block type, the number of bytes it holds and the number of bytes of its payload.
+ * A Huffman block's payload is the coding length of each of the <tt>ALPH_SIZE</tt>
+ * values as written by <code>CanonicalCode</code> followed by the coding of every
+ * byte, padded to a whole byte. A block whose coding would be no smaller than its
+ * bytes is written as a <code>BLOCK_STORED</code> block instead, whose payload is its
+ * bytes copied as they are, so no block is ever bigger than its bytes plus the block
+ * type and sizes. The file ends with a block of type <code>BLOCK_END</code> that has
+ * no lengths or payload.
+ */
+public class BlockCompressor implements IHuffConstants {
+
+	/**
+	 * The block type that ends a block file.
+	 */
+	public static final int BLOCK_END = 0;
+
+	/**
+	 * The block type of a block coded with its own canonical Huffman code.
+	 */
+	public static final int BLOCK_HUFFMAN = 1;
+
+	/**
+	 * The block type of a block whose bytes are stored without coding.
+	 */
+	public static final int BLOCK_STORED = 2;
+
+	/**
+	 * The number of bits of the type of a block.
+	 */
+	public static final int BITS_PER_BLOCK_TYPE = 8;
+
+	/**
+	 * The number of bytes of the type and sizes at the start of a block.
+	 */
+	public static final int FRAME_HEADER_SIZE = (BITS_PER_BLOCK_TYPE + 2 * BITS_PER_INT) / BITS_PER_WORD;
+
+	/**
+	 * The block size used when none is given.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * The smallest block size allowed.
+	 */
+	public static final int MIN_BLOCK_SIZE = 1 << 12;
+
+	/**
+	 * The largest block size allowed.
+	 */
+	public static final int MAX_BLOCK_SIZE = 1 << 26;
+
+	private final int blockSize;
+	private final int maxCodeLength;
+	private final ForkJoinPool pool;
+	private final boolean seekable;
+
+	/**
+	 * Creates a new BlockCompressor with the default block size and coding length limit
+	 * that codes on the calling thread.
+	 */
+	public BlockCompressor() {
+		this(DEFAULT_BLOCK_SIZE, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH, null);
+	}
+
+	/**
+	 * Creates a new BlockCompressor that codes on the calling thread.
+	 * @param blockSize, the most bytes in one block, between MIN_BLOCK_SIZE and MAX_BLOCK_SIZE.
+	 * @param maxCodeLength, the longest coding allowed, at least BITS_PER_WORD.
+	 */
+	public BlockCompressor(int blockSize, int maxCodeLength) {
+		this(blockSize, maxCodeLength, null);
+	}
+
+	/**
+	 * Creates a new BlockCompressor that codes blocks on the given pool. Blocks are read
+	 * on the calling thread, coded on the pool, and written in the order they were read,
+	 * with at most two blocks per thread of the pool waiting at once.
+	 * @param blockSize, the most bytes in one block, between MIN_BLOCK_SIZE and MAX_BLOCK_SIZE.
+	 * @param maxCodeLength, the longest coding allowed, at least BITS_PER_WORD.
+	 * @param pool, the ForkJoinPool to code blocks on, or null to code on the calling thread.
+	 */
+	public BlockCompressor(int blockSize, int maxCodeLength, ForkJoinPool pool) {
+		this(blockSize, maxCodeLength, pool, false);
+	}
+
+	/**
+	 * Creates a new BlockCompressor that codes blocks on the given pool and can end
+	 * files with a BlockIndex, so any range of the data can be uncompressed without
+	 * uncompressing the blocks before it.
+	 * @param blockSize, the most bytes in one block, between MIN_BLOCK_SIZE and MAX_BLOCK_SIZE.
+	 * @param maxCodeLength, the longest coding allowed, at least BITS_PER_WORD.
+	 * @param pool, the ForkJoinPool to code blocks on, or null to code on the calling thread.
+	 * @param seekable, true to write STORE_SEEKABLE_BLOCKS files ending with a BlockIndex,
+	 * false to write STORE_BLOCKS files.
+	 */
+	public BlockCompressor(int blockSize, int maxCodeLength, ForkJoinPool pool, boolean seekable) {
+		if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+			throw new IllegalArgumentException("Violation of precondition: BlockCompressor."
+					+ " Block size must be between " + MIN_BLOCK_SIZE + " and " + MAX_BLOCK_SIZE);
+		}
+		if (maxCodeLength < BITS_PER_WORD || maxCodeLength > CanonicalCode.MAX_CODE_LENGTH) {
+			throw new IllegalArgumentException("Violation of precondition: BlockCompressor."
+					+ " Coding length limit must be between " + BITS_PER_WORD + " and "
+					+ CanonicalCode.MAX_CODE_LENGTH);
+		}
+		this.blockSize = blockSize;
+		this.maxCodeLength = maxCodeLength;
+		this.pool = pool;
+		this.seekable = seekable;
+	}
+
+	/**
+	 * @return the most bytes in one block.
+	 */
+	public int blockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Compresses everything in the given stream, reading it only once. Both streams
+	 * are closed when done.
+	 * @param in, the stream being compressed.
+	 * @param out, the stream the block file is written to.
+	 * @return the number of bits written.
+	 * @throws IOException if an error occurs while reading or writing.
+	 */
+	public long compress(InputStream in, OutputStream out) throws IOException {
+		long bitsWritten = compress(in, null, new BitOutputStream(out));
+		in.close();
+		return bitsWritten;
+	}
+
+	/**
+	 * Compresses the remaining bytes of a buffer, coding the blocks in place. The
+	 * buffer's position is moved to its limit and the output stream is closed when done.
+	 * @param src, the buffer being compressed.
+	 * @param out, the stream the block file is written to.
+	 * @return the number of bits written.
+	 * @throws IOException if an error occurs while writing.
+	 */
+	public long compress(ByteBuffer src, OutputStream out) throws IOException {
+		return compress(null, src, new BitOutputStream(out));
+	}
+
+	/**
+	 * Compresses the remaining bytes of one buffer into another, coding the blocks in
+	 * place and putting the block file straight into dst. Blocks coded on the calling
+	 * thread are written into dst with no copy in between; blocks coded on a pool are
+	 * each copied into dst once. src's position is moved to its limit and dst's
+	 * position is moved past the block file.
+	 * @param src, the buffer being compressed.
+	 * @param dst, the buffer to put the block file in.
+	 * @return the number of bits written.
+	 * @throws java.nio.BufferOverflowException if dst runs out of room.
+	 */
+	public long compress(ByteBuffer src, ByteBuffer dst) {
+		try {
+			return compress(null, src, new BitOutputStream(dst));
+		} catch (IOException e) {
+			//only a stream can fail, and a buffer never does
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Finds the most bytes a block file of the given number of bytes can take, so
+	 * buffers for it can be sized before compressing. A block's payload is never more
+	 * than the bytes it holds, as a block that doesn't get smaller is stored.
+	 * @param length, the number of bytes to compress.
+	 * @return the most bytes of the block file.
+	 */
+	public long maxCompressedLength(long length) {
+		long blocks = (length + blockSize - 1) / blockSize;
+		long size = 3 * BITS_PER_INT / BITS_PER_WORD + blocks * FRAME_HEADER_SIZE
+				+ length + BITS_PER_BLOCK_TYPE / BITS_PER_WORD;
+		if (seekable) {
+			size += BlockIndex.size(blocks);
+		}
+		return size;
+	}
+
+	/**
+	 * Helper method for the compress methods that codes the blocks of a stream or buffer.
+	 * @param in, the stream being compressed, or null if a buffer is.
+	 * @param src, the buffer being compressed, or null if a stream is.
+	 * @param bos, the BitOutputStream the block file is written to, closed when done.
+	 * @return the number of bits written.
+	 * @throws IOException if an error occurs while reading or writing.
+	 */
+	private long compress(InputStream in, ByteBuffer src, BitOutputStream bos) throws IOException {
+		long bitsWritten = writeFileHeader(bos);
+		BlockIndex index = new BlockIndex();
+		//blocks being coded on the pool, in the order they were read
+		ArrayDeque<EncodeTask> pending = new ArrayDeque<>();
+		int window = pool == null ? 0 : 2 * pool.getParallelism();
+		byte[] buffer = in == null ? null : new byte[blockSize];
+		ByteBuffer block = nextBlock(in, src, buffer);
+		//codes each block as soon as it is full
+		while (block != null) {
+			if (pool == null) {
+				index.add(bitsWritten / BITS_PER_WORD, block.remaining());
+				bitsWritten += writeBlock(block, bos);
+			} else {
+				if (in != null) {
+					//the buffer is reused for the next block, so the task gets a copy
+					block = ByteBuffer.wrap(Arrays.copyOf(buffer, block.remaining()));
+				}
+				EncodeTask task = new EncodeTask(block);
+				pool.execute(task);
+				pending.add(task);
+				//writes the oldest block once the window is full
+				if (pending.size() > window) {
+					bitsWritten += writeFrame(bos, pending.remove(), index, bitsWritten);
+				}
+			}
+			block = nextBlock(in, src, buffer);
+		}
+		while (!pending.isEmpty()) {
+			bitsWritten += writeFrame(bos, pending.remove(), index, bitsWritten);
+		}
+		bitsWritten += writeEnd(bos);
+		if (seekable) {
+			bitsWritten += index.write(bos, bitsWritten / BITS_PER_WORD);
+		}
+		bos.close();
+		return bitsWritten;
+	}
+
+	/**
+	 * Writes the magic number, header format and block size that start a block file.
+	 * @param bos, the BitOutputStream to write to.
+	 * @return the number of bits written.
+	 */
+	public int writeFileHeader(BitOutputStream bos) {
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		bos.writeBits(BITS_PER_INT, seekable ? STORE_SEEKABLE_BLOCKS : STORE_BLOCKS);
+		bos.writeBits(BITS_PER_INT, blockSize);
+		return 3 * BITS_PER_INT;
+	}
+
+	/**
+	 * Writes the block that ends a block file.
+	 * @param bos, the BitOutputStream to write to.
+	 * @return the number of bits written.
+	 */
+	public int writeEnd(BitOutputStream bos) {
+		bos.writeBits(BITS_PER_BLOCK_TYPE, BLOCK_END);
+		return BITS_PER_BLOCK_TYPE;
+	}
+
+	/**
+	 * Codes one block of bytes into its complete form in a block file, type and sizes
+	 * included, storing the bytes if coding them doesn't make them smaller. Blocks are
+	 * independent of each other, so any number of blocks can be
+	 * coded at the same time.
+	 * @param data, the array holding the bytes of the block.
+	 * @param offset, the index of the first byte of the block.
+	 * @param length, the number of bytes in the block, at least 1 and at most the block size.
+	 * @return the bytes of the coded block.
+	 */
+	public byte[] encodeBlock(byte[] data, int offset, int length) {
+		return encodeBlock(ByteBuffer.wrap(data, offset, length));
+	}
+
+	/**
+	 * Codes the remaining bytes of a buffer as one block, reading them in place
+	 * without changing the buffer's position.
+	 * @param data, the buffer holding the bytes of the block, at least 1 and at most
+	 * the block size.
+	 * @return the bytes of the coded block.
+	 */
+	public byte[] encodeBlock(ByteBuffer data) {
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(data.remaining() + FRAME_HEADER_SIZE);
+		BitOutputStream bos = new BitOutputStream(frame);
+		writeBlock(data, bos);
+		bos.close();
+		return frame.toByteArray();
+	}
+
+	/**
+	 * Codes the remaining bytes of a buffer as one block straight to a BitOutputStream,
+	 * reading them in place without changing the buffer's position.
+	 * pre: the bits written to bos so far fill a whole number of bytes.
+	 * @param data, the buffer holding the bytes of the block, at least 1 and at most
+	 * the block size.
+	 * @param bos, the BitOutputStream to write the block to.
+	 * @return the number of bits written, a whole number of bytes.
+	 */
+	public long writeBlock(ByteBuffer data, BitOutputStream bos) {
+		int length = data.remaining();
+		//finds the codings for this block alone
+		Histogram histogram = new Histogram();
+		histogram.add(data);
+		long[] freqs = histogram.counts();
+		int[] lengths = LengthLimitedCode.lengths(freqs, maxCodeLength);
+		CanonicalCode.ensureCoded(lengths, data.get(data.position()) & 0xff);
+		HuffmanEncoder encoder = new HuffmanEncoder(CanonicalCode.codesFromLengths(lengths), lengths);
+		//codes the payload
+		int payloadBits = CanonicalCode.lengthsSize(lengths)
+				+ (int) LengthLimitedCode.dataBits(freqs, lengths);
+		int payloadBytes = (payloadBits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+		if (payloadBytes >= length) {
+			//the bytes are copied in one go after the type and sizes
+			bos.writeBits(BITS_PER_BLOCK_TYPE, BLOCK_STORED);
+			bos.writeBits(BITS_PER_INT, length);
+			bos.writeBits(BITS_PER_INT, length);
+			bos.writeBytes(data);
+			return (long) (FRAME_HEADER_SIZE + length) * BITS_PER_WORD;
+		}
+		bos.writeBits(BITS_PER_BLOCK_TYPE, BLOCK_HUFFMAN);
+		bos.writeBits(BITS_PER_INT, length);
+		bos.writeBits(BITS_PER_INT, payloadBytes);
+		CanonicalCode.writeLengths(bos, lengths);
+		encoder.encode(data, bos);
+		//pads the payload to a whole byte
+		bos.writeBits(payloadBytes * BITS_PER_WORD - payloadBits, 0);
+		return (long) (FRAME_HEADER_SIZE + payloadBytes) * BITS_PER_WORD;
+	}
+
+	/**
+	 * Helper method for compress that writes a coded block.
+	 * @param bos, the BitOutputStream to write to.
+	 * @param frame, the bytes of the coded block.
+	 * @return the number of bits written.
+	 */
+	private long writeFrame(BitOutputStream bos, byte[] frame) {
+		bos.writeBytes(frame, 0, frame.length);
+		return (long) frame.length * BITS_PER_WORD;
+	}
+
+	/**
+	 * Helper method for compress that waits for a block coded on the pool and writes it.
+	 * @param bos, the BitOutputStream to write to.
+	 * @param task, the task coding the block.
+	 * @param index, the index to add the block to.
+	 * @param bitsWritten, the number of bits written before the block.
+	 * @return the number of bits written.
+	 */
+	private long writeFrame(BitOutputStream bos, EncodeTask task, BlockIndex index, long bitsWritten) {
+		index.add(bitsWritten / BITS_PER_WORD, task.data.remaining());
+		return writeFrame(bos, task.join());
+	}
+
+	/**
+	 * Helper method for compress that finds the next block of a stream or buffer.
+	 * @param in, the stream being compressed, or null if a buffer is.
+	 * @param src, the buffer being compressed, or null if a stream is.
+	 * @param buffer, the array to read a block of the stream into.
+	 * @return a buffer of the bytes of the next block, or null if no bytes are left.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	private ByteBuffer nextBlock(InputStream in, ByteBuffer src, byte[] buffer) throws IOException {
+		if (in != null) {
+			int length = readBlock(in, buffer);
+			return length == 0 ? null : ByteBuffer.wrap(buffer, 0, length);
+		}
+		if (!src.hasRemaining()) {
+			return null;
+		}
+		//takes the next block of the buffer in place
+		int length = Math.min(blockSize, src.remaining());
+		ByteBuffer block = src.slice();
+		block.limit(length);
+		src.position(src.position() + length);
+		return block;
+	}
+
+	/**
+	 * Helper method for compress that fills a block from the stream.
+	 * @param in, the stream being compressed.
+	 * @param block, the array to fill.
+	 * @return the number of bytes read, less than the block size only at the end of the stream.
+	 * @throws IOException if an error occurs while reading.
+	 */
+	private int readBlock(InputStream in, byte[] block) throws IOException {
+		int length = 0;
+		int read = 0;
+		while (length < block.length && read != -1) {
+			read = in.read(block, length, block.length - length);
+			if (read > 0) {
+				length += read;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * A task that codes one block on bytes no other block shares.
+	 */
+	private class EncodeTask extends RecursiveTask<byte[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer data;
+
+		private EncodeTask(ByteBuffer data) {
+			this.data = data;
+		}
+
+		protected byte[] compute() {
+			return encodeBlock(data);
+		}
+	}
+}
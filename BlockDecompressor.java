@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Uncompresses files written by BlockCompressor one block at a time, so memory use is
+ * bounded by the block size no matter how big the file is.
+ * <P>
+ * Every block starts with the size of its payload, which acts as a table of where each
+ * block starts. With a pool the blocks are read on the calling thread, uncompressed on
+ * the pool, and written in the order they were read.
+ */
+public class BlockDecompressor implements IHuffConstants {
+
+	private BitInputStream bis;
+	private BitOutputStream bos;
+	private int blockSize;
+	private ForkJoinPool pool;
+
+	/**
+	 * Creates a new BlockDecompressor from the given BitInputStream and BitOutputStream
+	 * that uncompresses on the calling thread.
+	 * @param inputStream, the BitInputStream containing the block file, positioned just
+	 * after the STORE_BLOCKS header format.
+	 * @param outputStream, the BitOutputStream to write the uncompressed information to.
+	 */
+	public BlockDecompressor(BitInputStream inputStream, BitOutputStream outputStream) {
+		this(inputStream, outputStream, null);
+	}
+
+	/**
+	 * Creates a new BlockDecompressor from the given BitInputStream and BitOutputStream
+	 * that uncompresses blocks on the given pool, with at most two blocks per thread of
+	 * the pool waiting at once.
+	 * @param inputStream, the BitInputStream containing the block file, positioned just
+	 * after the STORE_BLOCKS header format.
+	 * @param outputStream, the BitOutputStream to write the uncompressed information to.
+	 * @param pool, the ForkJoinPool to uncompress blocks on, or null to use the calling thread.
+	 */
+	public BlockDecompressor(BitInputStream inputStream, BitOutputStream outputStream,
+			ForkJoinPool pool) {
+		bis = inputStream;
+		bos = outputStream;
+		this.pool = pool;
+	}
+
+	/**
+	 * Uncompresses every block of the file up to the end block. The streams are not closed.
+	 * @return the number of bytes written.
+	 * @throws IOException if the file is not a well formed block file.
+	 */
+	public long writeOutBytes() throws IOException {
+		blockSize = bis.readBits(BITS_PER_INT);
+		if (blockSize < BlockCompressor.MIN_BLOCK_SIZE || blockSize > BlockCompressor.MAX_BLOCK_SIZE) {
+			throw new IOException("Format of file is bad, block size is " + blockSize + ".");
+		}
+		long bytesWritten = 0;
+		//blocks being uncompressed on the pool, in the order they were read
+		ArrayDeque<DecodeTask> pending = new ArrayDeque<>();
+		int window = pool == null ? 0 : 2 * pool.getParallelism();
+		byte[] payload = new byte[0];
+		int type = readType();
+		while (type != BlockCompressor.BLOCK_END) {
+			int length = bis.readBits(BITS_PER_INT);
+			int payloadSize = bis.readBits(BITS_PER_INT);
+			//a block that wouldn't get smaller is stored, so no payload is bigger than its block
+			if (length < 1 || length > blockSize || payloadSize < 0 || payloadSize > length
+					|| (type == BlockCompressor.BLOCK_STORED && payloadSize != length)) {
+				throw new IOException("Format of file is bad, block sizes are out of range.");
+			}
+			if (pool == null) {
+				if (payload.length < payloadSize) {
+					payload = new byte[payloadSize];
+				}
+				readFully(payload, payloadSize);
+				if (type == BlockCompressor.BLOCK_STORED) {
+					//the payload is the bytes of the block
+					bos.writeBytes(payload, 0, length);
+					bytesWritten += length;
+				} else {
+					bytesWritten += writeBlock(decodeBlock(type, payload, 0, payloadSize, length));
+				}
+			} else {
+				//each task needs its own payload
+				byte[] own = new byte[payloadSize];
+				readFully(own, payloadSize);
+				DecodeTask task = new DecodeTask(type, own, length);
+				if (type == BlockCompressor.BLOCK_STORED) {
+					//a stored block is done as soon as it is read
+					task.complete(own);
+				} else {
+					pool.execute(task);
+				}
+				pending.add(task);
+				//writes the oldest block once the window is full
+				if (pending.size() > window) {
+					bytesWritten += writeBlock(pending.remove().result());
+				}
+			}
+			type = readType();
+		}
+		while (!pending.isEmpty()) {
+			bytesWritten += writeBlock(pending.remove().result());
+		}
+		return bytesWritten;
+	}
+
+	/**
+	 * Helper method for writeOutBytes that writes the bytes of an uncompressed block.
+	 * @param data, the bytes of the block.
+	 * @return the number of bytes written.
+	 */
+	private int writeBlock(byte[] data) {
+		bos.writeBytes(data, 0, data.length);
+		return data.length;
+	}
+
+	/**
+	 * Uncompresses the payload of one block. Blocks are independent of each other, so
+	 * any number of blocks can be uncompressed at the same time.
+	 * @param type, the type of the block.
+	 * @param payload, the array holding the payload of the block.
+	 * @param offset, the index of the first byte of the payload.
+	 * @param payloadSize, the number of bytes in the payload.
+	 * @param length, the number of bytes the block holds.
+	 * @return an array of the bytes the block holds.
+	 * @throws IOException if the block is not well formed.
+	 */
+	public static byte[] decodeBlock(int type, byte[] payload, int offset, int payloadSize, int length)
+			throws IOException {
+		if (type == BlockCompressor.BLOCK_STORED) {
+			if (payloadSize != length) {
+				throw new IOException("Format of file is bad, block sizes are out of range.");
+			}
+			return Arrays.copyOfRange(payload, offset, offset + length);
+		}
+		if (type != BlockCompressor.BLOCK_HUFFMAN) {
+			throw new IOException("This file cannot be uncompressed as it"
+					+ " contains an unsuported block type " + type + ".");
+		}
+		BitInputStream in = new BitInputStream(ByteBuffer.wrap(payload, offset, payloadSize));
+		int[] lengths = CanonicalCode.readLengths(in, ALPH_SIZE);
+		HuffmanDecoder decoder = new HuffmanDecoder(CanonicalCode.codesFromLengths(lengths), lengths);
+		byte[] data = new byte[length];
+		decoder.decode(in, data, 0, length);
+		return data;
+	}
+
+	/**
+	 * Helper method for writeOutBytes that reads the type of the next block.
+	 * @return the type of the block.
+	 * @throws IOException if the file ends before the end block.
+	 */
+	private int readType() throws IOException {
+		int type = bis.readBits(BlockCompressor.BITS_PER_BLOCK_TYPE);
+		if (type == -1) {
+			throw new IOException("Format of file is bad, ran out of bits.");
+		}
+		return type;
+	}
+
+	/**
+	 * Helper method for writeOutBytes that reads the payload of a block.
+	 * @param payload, the array to read into.
+	 * @param size, the number of bytes to read.
+	 * @throws IOException if the file ends before the payload does.
+	 */
+	private void readFully(byte[] payload, int size) throws IOException {
+		int count = 0;
+		while (count < size) {
+			int read = bis.read(payload, count, size - count);
+			if (read == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			count += read;
+		}
+	}
+
+	/**
+	 * A task that uncompresses one block from its own copy of the payload.
+	 */
+	private static class DecodeTask extends RecursiveTask<byte[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int type;
+		private final byte[] payload;
+		private final int length;
+
+		private DecodeTask(int type, byte[] payload, int length) {
+			this.type = type;
+			this.payload = payload;
+			this.length = length;
+		}
+
+		protected byte[] compute() {
+			try {
+				return decodeBlock(type, payload, 0, payload.length, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Waits for the block to be uncompressed.
+		 * @return the bytes of the block.
+		 * @throws IOException if the block is not well formed.
+		 */
+		private byte[] result() throws IOException {
+			try {
+				return join();
+			} catch (UncheckedIOException e) {
+				//the pool may rethrow a copy of the exception the task threw
+				Throwable cause = e;
+				while (cause != null && !(cause instanceof IOException)) {
+					cause = cause.getCause();
+				}
+				throw (IOException) cause;
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An index of where each block of a block file starts, both in the uncompressed data
+ * and in the file. STORE_SEEKABLE_BLOCKS files end with an index after the end block:
+ * the number of blocks as a 32 bit int, the size of the uncompressed data as a 64 bit
+ * long, and the data offset and file offset of each block as 64 bit longs. The last 12
+ * bytes of the file are the file offset of the index as a 64 bit long and
+ * <code>MAGIC_NUMBER</code>, so the index can be found by reading the end of the file.
+ * <P>
+ * Blocks are byte aligned, so a block's bit position is 8 times its file offset.
+ */
+public class BlockIndex implements IHuffConstants {
+
+	/**
+	 * The number of bytes at the end of a file that lead to the index.
+	 */
+	public static final int TRAILER_SIZE = (Long.SIZE + BITS_PER_INT) / BITS_PER_WORD;
+
+	//the bytes of each entry of the index
+	private static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+	private long[] dataOffsets;
+	private long[] fileOffsets;
+	private int count;
+	private long dataSize;
+
+	/**
+	 * Creates an empty BlockIndex.
+	 */
+	public BlockIndex() {
+		dataOffsets = new long[16];
+		fileOffsets = new long[16];
+	}
+
+	/**
+	 * Adds the next block to the index.
+	 * @param fileOffset, the byte of the file the block starts at.
+	 * @param length, the number of bytes of data the block holds.
+	 */
+	public void add(long fileOffset, int length) {
+		if (count == dataOffsets.length) {
+			dataOffsets = Arrays.copyOf(dataOffsets, 2 * count);
+			fileOffsets = Arrays.copyOf(fileOffsets, 2 * count);
+		}
+		dataOffsets[count] = dataSize;
+		fileOffsets[count] = fileOffset;
+		count++;
+		dataSize += length;
+	}
+
+	/**
+	 * @return the number of blocks in the index.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the number of bytes of uncompressed data in all the blocks.
+	 */
+	public long dataSize() {
+		return dataSize;
+	}
+
+	/**
+	 * @param block, the number of a block, starting at 0.
+	 * @return the offset in the uncompressed data of the block's first byte.
+	 */
+	public long dataOffset(int block) {
+		return dataOffsets[block];
+	}
+
+	/**
+	 * @param block, the number of a block, starting at 0.
+	 * @return the byte of the file the block starts at.
+	 */
+	public long fileOffset(int block) {
+		return fileOffsets[block];
+	}
+
+	/**
+	 * Finds the block holding a byte of the uncompressed data.
+	 * pre: 0 <= offset < dataSize()
+	 * @param offset, the offset of the byte in the uncompressed data.
+	 * @return the number of the block holding the byte.
+	 */
+	public int blockContaining(long offset) {
+		//finds the last block starting at or before the offset
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (dataOffsets[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Writes the index and the trailer that leads to it.
+	 * @param bos, the BitOutputStream to write to, at a byte boundary.
+	 * @param fileOffset, the byte of the file the index starts at.
+	 * @return the number of bits written.
+	 */
+	public long write(BitOutputStream bos, long fileOffset) {
+		bos.writeBits(BITS_PER_INT, count);
+		bos.writeBits(Long.SIZE, dataSize);
+		for (int block = 0; block < count; block++) {
+			bos.writeBits(Long.SIZE, dataOffsets[block]);
+			bos.writeBits(Long.SIZE, fileOffsets[block]);
+		}
+		bos.writeBits(Long.SIZE, fileOffset);
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		return size(count) * BITS_PER_WORD;
+	}
+
+	/**
+	 * Finds the number of bytes the index of a file with the given number of blocks
+	 * takes, trailer included.
+	 * @param blocks, the number of blocks.
+	 * @return the size of the index in bytes.
+	 */
+	public static long size(long blocks) {
+		return BITS_PER_INT / BITS_PER_WORD + Long.BYTES + blocks * ENTRY_SIZE + TRAILER_SIZE;
+	}
+
+	/**
+	 * Reads the index at the end of a STORE_SEEKABLE_BLOCKS file.
+	 * @param channel, the channel of the file.
+	 * @return the index of the file.
+	 * @throws IOException if the file does not end with a well formed index.
+	 */
+	public static BlockIndex read(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		if (fileSize < TRAILER_SIZE) {
+			throw new IOException("Format of file is bad, file has no block index.");
+		}
+		ByteBuffer trailer = readFully(channel, fileSize - TRAILER_SIZE, TRAILER_SIZE);
+		long indexStart = trailer.getLong();
+		if (trailer.getInt() != MAGIC_NUMBER || indexStart < 0
+				|| indexStart > fileSize - TRAILER_SIZE - BITS_PER_INT / BITS_PER_WORD - Long.BYTES) {
+			throw new IOException("Format of file is bad, file has no block index.");
+		}
+		int headerSize = BITS_PER_INT / BITS_PER_WORD + Long.BYTES;
+		ByteBuffer header = readFully(channel, indexStart, headerSize);
+		int count = header.getInt();
+		long dataSize = header.getLong();
+		if (count < 0 || (long) count * ENTRY_SIZE != fileSize - TRAILER_SIZE - indexStart - headerSize) {
+			throw new IOException("Format of file is bad, block index has the wrong size.");
+		}
+		BlockIndex index = new BlockIndex();
+		index.dataOffsets = new long[Math.max(count, 1)];
+		index.fileOffsets = new long[Math.max(count, 1)];
+		ByteBuffer entries = readFully(channel, indexStart + headerSize, count * ENTRY_SIZE);
+		for (int block = 0; block < count; block++) {
+			index.dataOffsets[block] = entries.getLong();
+			index.fileOffsets[block] = entries.getLong();
+		}
+		index.count = count;
+		index.dataSize = dataSize;
+		return index;
+	}
+
+	/**
+	 * Reads bytes from a given position of a channel.
+	 * @param channel, the channel to read from.
+	 * @param position, the position of the first byte.
+	 * @param size, the number of bytes to read.
+	 * @return a buffer of the bytes read, ready to be read from.
+	 * @throws IOException if the channel ends before all the bytes are read.
+	 */
+	static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new IOException("Format of file is bad, ran out of bytes.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,320 @@
+import java.io.IOException;
+
+/**
+ * Static helpers for canonical Huffman codes. A canonical code is fully described by the
+ * length of the coding for each value: codings of the same length are consecutive binary
+ * numbers in order of value, and shorter codings come before longer ones. Only the lengths
+ * need to be stored in a header, and encoder and decoder tables are built from them
+ * directly without building a tree.
+ */
+public class CanonicalCode implements IHuffConstants {
+
+	//the number of bits of the tag that says how the lengths are stored
+	private static final int BITS_PER_FORMAT = 2;
+	//lengths stored with the same number of bits each
+	private static final int FIXED_WIDTH = 0;
+	//lengths stored as the change from the length before, 0 for the first
+	private static final int DELTA = 1;
+	//the number of bits of the width of each stored length
+	private static final int BITS_PER_WIDTH = 3;
+	//the longest coding a canonical code can have
+	public static final int MAX_CODE_LENGTH = Long.SIZE;
+
+	private CanonicalCode() {
+	}
+
+	/**
+	 * Creates the canonical codings for the given coding lengths.
+	 * pre: the lengths must describe a prefix code, as the lengths of any Huffman code do.
+	 * @param lengths, the number of bits in the coding for each value, 0 if it has none.
+	 * @return the bits of the coding for each value, stored in the rightmost bits.
+	 */
+	public static long[] codesFromLengths(int[] lengths) {
+		//counts the codings of each length
+		int[] lengthCounts = new int[MAX_CODE_LENGTH + 1];
+		for (int length: lengths) {
+			lengthCounts[length]++;
+		}
+		lengthCounts[0] = 0;
+		//finds the first coding of each length
+		long[] nextCode = new long[MAX_CODE_LENGTH + 1];
+		long code = 0;
+		for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+			code = (code + lengthCounts[length - 1]) << 1;
+			nextCode[length] = code;
+		}
+		//hands out codings in order of value
+		long[] codes = new long[lengths.length];
+		for (int value = 0; value < lengths.length; value++) {
+			if (lengths[value] > 0) {
+				codes[value] = nextCode[lengths[value]]++;
+			}
+		}
+		return codes;
+	}
+
+	/**
+	 * Makes sure at least one coding has bits. A code with a single value gives it a
+	 * coding of no bits, which cannot be told apart from values without a coding once
+	 * only lengths are stored, so that value is given a 1 bit coding instead.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @param onlyValue, the value to give a coding if no value has one.
+	 */
+	public static void ensureCoded(int[] lengths, int onlyValue) {
+		for (int length: lengths) {
+			if (length > 0) {
+				return;
+			}
+		}
+		lengths[onlyValue] = 1;
+	}
+
+	/**
+	 * Writes the given coding lengths to a BitOutputStream, either with the same number
+	 * of bits each or as changes from the length before, whichever is smaller. A change
+	 * is written as 0 for none, 10 and a sign bit for one longer or shorter, or 11 and
+	 * the length itself.
+	 * @param bos, the BitOutputStream to write the lengths to.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @return the number of bits written.
+	 */
+	public static int writeLengths(BitOutputStream bos, int[] lengths) {
+		int width = widthOf(lengths);
+		if (deltaBits(lengths, width) < width * lengths.length) {
+			bos.writeBits(BITS_PER_FORMAT, DELTA);
+			bos.writeBits(BITS_PER_WIDTH, width - 1);
+			int previous = 0;
+			for (int length: lengths) {
+				if (length == previous) {
+					bos.writeBits(1, 0);
+				} else if (length == previous + 1 || length == previous - 1) {
+					bos.writeBits(3, length > previous ? 0b100 : 0b101);
+				} else {
+					bos.writeBits(2, 0b11);
+					bos.writeBits(width, length);
+				}
+				previous = length;
+			}
+		} else {
+			bos.writeBits(BITS_PER_FORMAT, FIXED_WIDTH);
+			bos.writeBits(BITS_PER_WIDTH, width - 1);
+			for (int length: lengths) {
+				bos.writeBits(width, length);
+			}
+		}
+		return lengthsSize(lengths);
+	}
+
+	/**
+	 * Reads coding lengths written by writeLengths. Every table written by writeLengths
+	 * codes at least one value, so a table of only zeros is rejected.
+	 * @param bis, the BitInputStream to read the lengths from.
+	 * @param count, the number of lengths to read.
+	 * @return the number of bits in the coding for each value.
+	 * @throws IOException if the input runs out, the lengths are stored in an unknown way
+	 * or no value has a coding.
+	 */
+	public static int[] readLengths(BitInputStream bis, int count) throws IOException {
+		int format = bis.readBits(BITS_PER_FORMAT);
+		if (format != FIXED_WIDTH && format != DELTA) {
+			throw new IOException("Format of file is bad, unknown code length format.");
+		}
+		int width = bis.readBits(BITS_PER_WIDTH) + 1;
+		int[] lengths = new int[count];
+		int previous = 0;
+		boolean coded = false;
+		for (int i = 0; i < count; i++) {
+			if (format == FIXED_WIDTH) {
+				lengths[i] = bis.readBits(width);
+			} else {
+				lengths[i] = readDelta(bis, previous, width);
+			}
+			if (lengths[i] < 0 || lengths[i] > MAX_CODE_LENGTH) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			previous = lengths[i];
+			coded |= lengths[i] > 0;
+		}
+		if (!coded) {
+			throw new IOException("Format of file is bad, no value has a coding.");
+		}
+		checkPrefixCode(lengths);
+		return lengths;
+	}
+
+	/**
+	 * Writes only the coding lengths of the values that have a coding, for alphabets
+	 * too big to store a length for every value. The number of coded values is written
+	 * first, then for each coded value in order the gap since the last coded value and
+	 * its length.
+	 * @param bos, the BitOutputStream to write the lengths to.
+	 * @param lengths, the number of bits in the coding for each value, 0 if it has none.
+	 * @return the number of bits written.
+	 */
+	public static long writeSparseLengths(BitOutputStream bos, int[] lengths) {
+		int width = widthOf(lengths);
+		long bitsWritten = VarInt.write(bos, codedCount(lengths));
+		bos.writeBits(BITS_PER_WIDTH, width - 1);
+		bitsWritten += BITS_PER_WIDTH;
+		int last = -1;
+		for (int value = 0; value < lengths.length; value++) {
+			if (lengths[value] > 0) {
+				bitsWritten += VarInt.write(bos, value - last - 1);
+				bos.writeBits(width, lengths[value]);
+				bitsWritten += width;
+				last = value;
+			}
+		}
+		return bitsWritten;
+	}
+
+	/**
+	 * Reads coding lengths written by writeSparseLengths.
+	 * @param bis, the BitInputStream to read the lengths from.
+	 * @param count, the number of values in the alphabet.
+	 * @return the number of bits in the coding for each value, 0 if it has none.
+	 * @throws IOException if the input runs out or a value is outside the alphabet.
+	 */
+	public static int[] readSparseLengths(BitInputStream bis, int count) throws IOException {
+		long coded = VarInt.read(bis);
+		if (coded > count) {
+			throw new IOException("Format of file is bad, too many code lengths.");
+		}
+		int width = bis.readBits(BITS_PER_WIDTH) + 1;
+		int[] lengths = new int[count];
+		long value = -1;
+		for (long i = 0; i < coded; i++) {
+			value += VarInt.read(bis) + 1;
+			if (value >= count) {
+				throw new IOException("Format of file is bad, value outside the alphabet.");
+			}
+			int length = bis.readBits(width);
+			if (length <= 0 || length > MAX_CODE_LENGTH) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			lengths[(int) value] = length;
+		}
+		checkPrefixCode(lengths);
+		return lengths;
+	}
+
+	/**
+	 * Checks that coding lengths read from a file describe a prefix code, so no two
+	 * codings overlap: the sum of 2 to the minus length of every coding is at most 1.
+	 * @param lengths, the number of bits in the coding for each value, 0 if it has none.
+	 * @throws IOException if there are too many short codings for a prefix code.
+	 */
+	public static void checkPrefixCode(int[] lengths) throws IOException {
+		long[] lengthCounts = new long[MAX_CODE_LENGTH + 1];
+		for (int length: lengths) {
+			lengthCounts[length]++;
+		}
+		//the codings of each length still free, capped at the number of values as no
+		//more than that can ever be used
+		long cap = Math.max(lengths.length, 1);
+		long free = 1;
+		for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+			free = Math.min(free * 2, cap) - lengthCounts[length];
+			if (free < 0) {
+				throw new IOException("Format of file is bad, code lengths are not a prefix code.");
+			}
+		}
+	}
+
+	/**
+	 * Finds the number of bits writeSparseLengths writes for the given coding lengths.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @return the size of the stored lengths in bits.
+	 */
+	public static long sparseLengthsSize(int[] lengths) {
+		int width = widthOf(lengths);
+		long size = VarInt.size(codedCount(lengths)) + BITS_PER_WIDTH;
+		int last = -1;
+		for (int value = 0; value < lengths.length; value++) {
+			if (lengths[value] > 0) {
+				size += VarInt.size(value - last - 1) + width;
+				last = value;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Finds the number of values that have a coding.
+	 */
+	private static int codedCount(int[] lengths) {
+		int count = 0;
+		for (int length: lengths) {
+			if (length > 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Helper method for readLengths that reads one length written as a change.
+	 */
+	private static int readDelta(BitInputStream bis, int previous, int width) throws IOException {
+		if (bis.readBits(1) == 0) {
+			return previous;
+		} else if (bis.readBits(1) == 0) {
+			//one longer or shorter than the length before
+			return bis.readBits(1) == 0 ? previous + 1 : previous - 1;
+		}
+		return bis.readBits(width);
+	}
+
+	/**
+	 * Finds the number of bits writeLengths writes for the given coding lengths.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @return the size of the stored lengths in bits.
+	 */
+	public static int lengthsSize(int[] lengths) {
+		int width = widthOf(lengths);
+		return BITS_PER_FORMAT + BITS_PER_WIDTH + Math.min(width * lengths.length, deltaBits(lengths, width));
+	}
+
+	/**
+	 * Finds the number of bits the lengths take written as changes from the length before.
+	 */
+	private static int deltaBits(int[] lengths, int width) {
+		int bits = 0;
+		int previous = 0;
+		for (int length: lengths) {
+			if (length == previous) {
+				bits += 1;
+			} else if (length == previous + 1 || length == previous - 1) {
+				bits += 3;
+			} else {
+				bits += 2 + width;
+			}
+			previous = length;
+		}
+		return bits;
+	}
+
+	/**
+	 * Finds the most bits writeLengths can write for the given number of lengths. Lengths
+	 * are only written as changes when that is smaller, so this is the size of lengths
+	 * written with the same number of bits each.
+	 * @param count, the number of lengths.
+	 * @return the largest size of the stored lengths in bits.
+	 */
+	public static int maxLengthsSize(int count) {
+		//no length is wider than the longest coding
+		int width = Integer.SIZE - Integer.numberOfLeadingZeros(MAX_CODE_LENGTH);
+		return BITS_PER_FORMAT + BITS_PER_WIDTH + width * count;
+	}
+
+	/**
+	 * Finds the number of bits needed to store the longest of the given lengths.
+	 */
+	private static int widthOf(int[] lengths) {
+		int max = 1;
+		for (int length: lengths) {
+			max = Math.max(max, length);
+		}
+		return Integer.SIZE - Integer.numberOfLeadingZeros(max);
+	}
+}
@@ -0,0 +1,161 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * A canonical code trained ahead of time on a sample corpus and shared by the
+ * compressor and decompressor, so a <tt>STORE_SHARED_TABLE</tt> file only holds the
+ * table's id and checksum instead of counts or a tree. Every value and PSEUDO_EOF has
+ * a coding, so any data can be coded with any table. The encoder and decoder tables
+ * are built once when the table is made and shared by every file coded with it.
+ * <P>
+ * A table file holds TABLE_MAGIC, the id and the checksum, 32 bits each, then the
+ * coding lengths of the ALPH_SIZE + 1 values, see <code>CanonicalCode.writeLengths</code>.
+ */
+public class CodeTable implements IHuffConstants {
+
+	//the first 32 bits of a table file
+	private static final int TABLE_MAGIC = 0xface7ab1;
+
+	private final int id;
+	private final int[] lengths;
+	private final int checksum;
+	private final HuffmanEncoder encoder;
+	private final HuffmanDecoder decoder;
+
+	/**
+	 * Creates a CodeTable from coding lengths.
+	 * @param id, the id files coded with this table refer to it by, at least 0.
+	 * @param lengths, the number of bits in the coding of each of the ALPH_SIZE + 1
+	 * values, every one at least 1 and together a prefix code.
+	 */
+	public CodeTable(int id, int[] lengths) {
+		if (id < 0 || lengths.length != ALPH_SIZE + 1) {
+			throw new IllegalArgumentException("Violation of precondition: CodeTable."
+					+ " The id must be at least 0 and there must be a length for every value.");
+		}
+		for (int length: lengths) {
+			if (length < 1 || length > CanonicalCode.MAX_CODE_LENGTH) {
+				throw new IllegalArgumentException("Violation of precondition: CodeTable."
+						+ " Every value must have a coding.");
+			}
+		}
+		this.id = id;
+		this.lengths = lengths.clone();
+		checksum = checksum(this.lengths);
+		long[] codes = CanonicalCode.codesFromLengths(this.lengths);
+		encoder = new HuffmanEncoder(codes, this.lengths);
+		decoder = new HuffmanDecoder(codes, this.lengths);
+	}
+
+	/**
+	 * Trains a CodeTable on the counts of a sample corpus. Every value gets one more
+	 * count than it has so values missing from the corpus still have a coding.
+	 * @param id, the id of the new table, at least 0.
+	 * @param corpus, the counts of every value of the corpus.
+	 * @param maxLength, the longest coding allowed, at least BITS_PER_WORD + 1.
+	 * @return the trained table.
+	 */
+	public static CodeTable train(int id, Histogram corpus, int maxLength) {
+		long[] freqs = new long[ALPH_SIZE + 1];
+		long[] counts = corpus.counts();
+		for (int value = 0; value < ALPH_SIZE; value++) {
+			freqs[value] = counts[value] + 1;
+		}
+		freqs[PSEUDO_EOF] = 1;
+		return new CodeTable(id, LengthLimitedCode.lengths(freqs, maxLength));
+	}
+
+	/**
+	 * Reads a table file written by write.
+	 * @param file, the table file.
+	 * @return the table read.
+	 * @throws IOException if the file cannot be read or is not a well formed table file.
+	 */
+	public static CodeTable read(File file) throws IOException {
+		BitInputStream bis = new BitInputStream(new MappedInputStream(file));
+		try {
+			if (bis.readBits(BITS_PER_INT) != TABLE_MAGIC) {
+				throw new IOException("Format of file is bad, " + file + " is not a code table.");
+			}
+			int id = bis.readBits(BITS_PER_INT);
+			int checksum = bis.readBits(BITS_PER_INT);
+			int[] lengths = CanonicalCode.readLengths(bis, ALPH_SIZE + 1);
+			CodeTable table;
+			try {
+				table = new CodeTable(id, lengths);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Format of file is bad, " + e.getMessage());
+			}
+			if (table.checksum() != checksum) {
+				throw new IOException("Format of file is bad, checksum of " + file + " does not match.");
+			}
+			return table;
+		} finally {
+			bis.close();
+		}
+	}
+
+	/**
+	 * Writes this table to a table file.
+	 * @param file, the file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		BitOutputStream bos = new BitOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		bos.writeBits(BITS_PER_INT, TABLE_MAGIC);
+		bos.writeBits(BITS_PER_INT, id);
+		bos.writeBits(BITS_PER_INT, checksum);
+		CanonicalCode.writeLengths(bos, lengths);
+		bos.close();
+	}
+
+	/**
+	 * @return the id files coded with this table refer to it by.
+	 */
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * @return the CRC-32 of the coding lengths, stored with the id so a file is never
+	 * uncompressed with a different table that has the same id.
+	 */
+	public int checksum() {
+		return checksum;
+	}
+
+	/**
+	 * @return the number of bits in the coding of each value.
+	 */
+	public int[] lengths() {
+		return lengths.clone();
+	}
+
+	/**
+	 * @return the encoder for this table, which can be shared by any number of threads.
+	 */
+	public HuffmanEncoder encoder() {
+		return encoder;
+	}
+
+	/**
+	 * @return the decoder for this table, which can be shared by any number of threads.
+	 */
+	public HuffmanDecoder decoder() {
+		return decoder;
+	}
+
+	/**
+	 * Helper method that finds the CRC-32 of coding lengths.
+	 */
+	private static int checksum(int[] lengths) {
+		CRC32 crc = new CRC32();
+		for (int length: lengths) {
+			crc.update(length);
+		}
+		return (int) crc.getValue();
+	}
+}
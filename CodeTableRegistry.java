@@ -0,0 +1,74 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the shared CodeTables known to a compressor or decompressor by id. Each table
+ * file is read once and its tables are kept, so decoding many small files with the
+ * same table doesn't rebuild its decoder. Any number of threads can use a registry.
+ */
+public class CodeTableRegistry {
+
+	private final ConcurrentHashMap<Integer, CodeTable> tables;
+
+	/**
+	 * Creates an empty CodeTableRegistry.
+	 */
+	public CodeTableRegistry() {
+		tables = new ConcurrentHashMap<Integer, CodeTable>();
+	}
+
+	/**
+	 * Adds a table to this registry.
+	 * @param table, the table to add.
+	 * @throws IllegalArgumentException if a different table with the same id has been added.
+	 */
+	public void register(CodeTable table) {
+		CodeTable old = tables.putIfAbsent(table.id(), table);
+		if (old != null && old.checksum() != table.checksum()) {
+			throw new IllegalArgumentException("Violation of precondition: register."
+					+ " A different table with id " + table.id() + " is already registered.");
+		}
+	}
+
+	/**
+	 * Reads a table file and adds its table to this registry.
+	 * @param file, the table file.
+	 * @return the table read.
+	 * @throws IOException if the file cannot be read or is not a well formed table file.
+	 */
+	public CodeTable load(File file) throws IOException {
+		CodeTable table = CodeTable.read(file);
+		register(table);
+		return table;
+	}
+
+	/**
+	 * Finds a table by id.
+	 * @param id, the id of the table.
+	 * @return the table, or null if no table with the id has been added.
+	 */
+	public CodeTable get(int id) {
+		return tables.get(id);
+	}
+
+	/**
+	 * Finds the table a compressed file was coded with.
+	 * @param id, the id stored in the file.
+	 * @param checksum, the checksum stored in the file.
+	 * @return the table.
+	 * @throws IOException if no table with the id has been added or its checksum is different.
+	 */
+	public CodeTable get(int id, int checksum) throws IOException {
+		CodeTable table = tables.get(id);
+		if (table == null) {
+			throw new IOException("This file cannot be uncompressed as it needs the shared"
+					+ " code table " + id + ", which has not been loaded.");
+		}
+		if (table.checksum() != checksum) {
+			throw new IOException("This file cannot be uncompressed as it was compressed with"
+					+ " a different shared code table " + id + ".");
+		}
+		return table;
+	}
+}
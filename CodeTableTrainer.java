@@ -0,0 +1,90 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Trains a shared CodeTable on a sample corpus of files like the ones it will code.
+ * From the command line:
+ * <pre>
+ * java CodeTableTrainer id tableFile corpusFileOrDirectory...
+ * </pre>
+ * counts every file, going into directories, and writes the trained table to tableFile.
+ */
+public class CodeTableTrainer implements IHuffConstants {
+
+	private final Histogram corpus;
+	private int fileCount;
+
+	/**
+	 * Creates a CodeTableTrainer with an empty corpus.
+	 */
+	public CodeTableTrainer() {
+		corpus = new Histogram();
+	}
+
+	/**
+	 * Adds a file, or every file below a directory, to the corpus.
+	 * @param file, the file or directory to add.
+	 * @throws IOException if a file cannot be read.
+	 */
+	public void add(File file) throws IOException {
+		if (file.isDirectory()) {
+			File[] list = file.listFiles();
+			if (list != null) {
+				for (File f: list) {
+					add(f);
+				}
+			}
+			return;
+		}
+		InputStream in = new MappedInputStream(file);
+		try {
+			corpus.add(in);
+		} finally {
+			in.close();
+		}
+		fileCount++;
+	}
+
+	/**
+	 * Trains a table on the files added so far.
+	 * @param id, the id of the new table, at least 0.
+	 * @return the trained table.
+	 */
+	public CodeTable train(int id) {
+		return CodeTable.train(id, corpus, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH);
+	}
+
+	/**
+	 * @return the number of files added.
+	 */
+	public int fileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * @return the number of bytes added.
+	 */
+	public long size() {
+		return corpus.size();
+	}
+
+	/**
+	 * Trains a table on the files named on the command line.
+	 * @param args the table id, the table file to write and the corpus files or directories.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("usage: java CodeTableTrainer id tableFile corpusFileOrDirectory...");
+			return;
+		}
+		CodeTableTrainer trainer = new CodeTableTrainer();
+		for (int i = 2; i < args.length; i++) {
+			trainer.add(new File(args[i]));
+		}
+		CodeTable table = trainer.train(Integer.parseInt(args[0]));
+		table.write(new File(args[1]));
+		System.out.printf("trained table %d on %d files, %d bytes, checksum %08x\n",
+				table.id(), trainer.fileCount(), trainer.size(), table.checksum());
+	}
+}
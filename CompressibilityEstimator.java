@@ -0,0 +1,191 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Estimates how well data will compress by reading only a sample of it: a number of
+ * chunks spread evenly through the data. The chunks are counted together to find the
+ * entropy and a Huffman coding of the sample, and the bits per byte of each chunk under
+ * that coding gives a confidence bound on the prediction. Callers can look at the
+ * estimate and skip compressing data that won't get any smaller without reading all
+ * of it. Data no bigger than the sample is read completely and the estimate is exact.
+ */
+public class CompressibilityEstimator implements IHuffConstants {
+
+	/**
+	 * The number of chunks sampled if no other number is given.
+	 */
+	public static final int DEFAULT_CHUNK_COUNT = 64;
+
+	/**
+	 * The number of bytes in each chunk if no other size is given.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 12;
+
+	//about 95% of estimates fall within this many standard errors of the real value
+	private static final double Z_95 = 1.96;
+
+	private final int chunkCount;
+	private final int chunkSize;
+
+	/**
+	 * Creates a CompressibilityEstimator that samples DEFAULT_CHUNK_COUNT chunks of
+	 * DEFAULT_CHUNK_SIZE bytes.
+	 */
+	public CompressibilityEstimator() {
+		this(DEFAULT_CHUNK_COUNT, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a CompressibilityEstimator.
+	 * @param chunkCount, the number of chunks to sample, at least 2.
+	 * @param chunkSize, the number of bytes in each chunk, at least 1.
+	 */
+	public CompressibilityEstimator(int chunkCount, int chunkSize) {
+		if (chunkCount < 2 || chunkSize < 1 || (long) chunkCount * chunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Violation of precondition: CompressibilityEstimator."
+					+ " There must be at least 2 chunks of at least 1 byte.");
+		}
+		this.chunkCount = chunkCount;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Finds if an estimate predicts the size of a header format. The estimate counts
+	 * single bytes on their own, so it only fits the formats that code the whole file
+	 * with one coding of bytes. Symbols wider than a byte and codings chosen by the
+	 * byte before can compress data whose bytes alone look random, and the single pass
+	 * formats always write their output, storing blocks that don't get smaller.
+	 * @param headerFormat, the header format the data would be compressed with.
+	 * @return true if the estimate can be used to skip compressing with the format.
+	 */
+	public static boolean appliesTo(int headerFormat) {
+		return headerFormat != STORE_SYMBOLS && headerFormat != STORE_CONTEXTS
+				&& headerFormat != STORE_BLOCKS && headerFormat != STORE_SEEKABLE_BLOCKS
+				&& headerFormat != STORE_ADAPTIVE;
+	}
+
+	/**
+	 * Estimates how well a file will compress, reading only the sampled chunks.
+	 * @param file, the file to sample.
+	 * @return the estimate.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public CompressionEstimate estimate(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			ByteBuffer[] chunks = new ByteBuffer[chunksFor(size)];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = BlockIndex.readFully(channel, position(i, size), length(i, size));
+			}
+			return estimate(chunks, size);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Estimates how well the remaining bytes of a buffer will compress, reading only the
+	 * sampled chunks. The buffer's position is not changed.
+	 * @param data, the data to sample.
+	 * @return the estimate.
+	 */
+	public CompressionEstimate estimate(ByteBuffer data) {
+		long size = data.remaining();
+		ByteBuffer[] chunks = new ByteBuffer[chunksFor(size)];
+		for (int i = 0; i < chunks.length; i++) {
+			ByteBuffer chunk = data.duplicate();
+			chunk.position(data.position() + (int) position(i, size));
+			chunk.limit(chunk.position() + length(i, size));
+			chunks[i] = chunk;
+		}
+		return estimate(chunks, size);
+	}
+
+	/**
+	 * Helper method that finds the number of chunks to read from data of a given size.
+	 */
+	private int chunksFor(long size) {
+		if (size <= (long) chunkCount * chunkSize) {
+			//small data is read completely, in chunks of chunkSize
+			return (int) ((size + chunkSize - 1) / chunkSize);
+		}
+		return chunkCount;
+	}
+
+	/**
+	 * Helper method that finds where a chunk starts, in the middle of its share of the data.
+	 */
+	private long position(int chunk, long size) {
+		if (size <= (long) chunkCount * chunkSize) {
+			return (long) chunk * chunkSize;
+		}
+		long stride = size / chunkCount;
+		return chunk * stride + (stride - chunkSize) / 2;
+	}
+
+	/**
+	 * Helper method that finds the number of bytes in a chunk.
+	 */
+	private int length(int chunk, long size) {
+		return (int) Math.min(chunkSize, size - position(chunk, size));
+	}
+
+	/**
+	 * Helper method that makes the estimate from the sampled chunks.
+	 */
+	private CompressionEstimate estimate(ByteBuffer[] chunks, long size) {
+		long[][] chunkCounts = new long[chunks.length][ALPH_SIZE];
+		long[] freqs = new long[ALPH_SIZE + 1];
+		long sampled = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			ByteBuffer chunk = chunks[i];
+			long[] counts = chunkCounts[i];
+			for (int p = chunk.position(); p < chunk.limit(); p++) {
+				counts[chunk.get(p) & 0xff]++;
+			}
+			for (int value = 0; value < ALPH_SIZE; value++) {
+				freqs[value] += counts[value];
+			}
+			sampled += chunk.remaining();
+		}
+		freqs[PSEUDO_EOF] = 1;
+		int[] lengths = LengthLimitedCode.lengths(freqs, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH);
+		long headerBits = BITS_PER_INT * 2 + CanonicalCode.lengthsSize(lengths) + lengths[PSEUDO_EOF];
+		if (sampled == 0) {
+			return new CompressionEstimate(size, sampled, 0, 0, 0, headerBits);
+		}
+		double entropy = 0;
+		for (int value = 0; value < ALPH_SIZE; value++) {
+			if (freqs[value] != 0) {
+				double p = (double) freqs[value] / sampled;
+				entropy -= p * Math.log(p) / Math.log(2);
+			}
+		}
+		double bitsPerByte = (double) (LengthLimitedCode.dataBits(freqs, lengths) - lengths[PSEUDO_EOF]) / sampled;
+		return new CompressionEstimate(size, sampled, entropy, bitsPerByte,
+				margin(chunks, chunkCounts, lengths, bitsPerByte, sampled, size), headerBits);
+	}
+
+	/**
+	 * Helper method that finds the 95% confidence margin of the bits per byte from how
+	 * much the bits per byte of the chunks differ, shrinking it as the sample covers
+	 * more of the data.
+	 */
+	private static double margin(ByteBuffer[] chunks, long[][] chunkCounts, int[] lengths,
+			double bitsPerByte, long sampled, long size) {
+		if (chunks.length < 2 || sampled == size) {
+			return 0;
+		}
+		double sumOfSquares = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			double chunkBits = (double) LengthLimitedCode.dataBits(chunkCounts[i], lengths) / chunks[i].remaining();
+			sumOfSquares += (chunkBits - bitsPerByte) * (chunkBits - bitsPerByte);
+		}
+		double standardError = Math.sqrt(sumOfSquares / (chunks.length - 1) / chunks.length);
+		return Z_95 * standardError * Math.sqrt(1 - (double) sampled / size);
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * What a CompressibilityEstimator found out about some data from a sample of it: the
+ * entropy of the sample, the size a Huffman coding of all the data is predicted to
+ * compress to, and how far off that prediction may be.
+ */
+public class CompressionEstimate implements IHuffConstants {
+
+	private final long totalBytes;
+	private final long sampledBytes;
+	private final double entropy;
+	private final double bitsPerByte;
+	private final double margin;
+	private final long headerBits;
+
+	/**
+	 * Creates a CompressionEstimate.
+	 * @param totalBytes, the number of bytes in all the data.
+	 * @param sampledBytes, the number of bytes sampled.
+	 * @param entropy, the entropy of the sample in bits per byte.
+	 * @param bitsPerByte, the bits per byte of a Huffman coding of the sample.
+	 * @param margin, the most bitsPerByte is expected to be off by for all the data.
+	 * @param headerBits, the number of bits in the header of the compressed data.
+	 */
+	public CompressionEstimate(long totalBytes, long sampledBytes, double entropy,
+			double bitsPerByte, double margin, long headerBits) {
+		this.totalBytes = totalBytes;
+		this.sampledBytes = sampledBytes;
+		this.entropy = entropy;
+		this.bitsPerByte = bitsPerByte;
+		this.margin = margin;
+		this.headerBits = headerBits;
+	}
+
+	/**
+	 * @return the number of bytes in all the data.
+	 */
+	public long totalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * @return the number of bytes that were read to make this estimate.
+	 */
+	public long sampledBytes() {
+		return sampledBytes;
+	}
+
+	/**
+	 * @return true if every byte was read, so the prediction has no margin.
+	 */
+	public boolean isExact() {
+		return sampledBytes == totalBytes;
+	}
+
+	/**
+	 * @return the entropy of the sampled bytes in bits per byte, the fewest bits any
+	 * coding of single bytes could use.
+	 */
+	public double entropy() {
+		return entropy;
+	}
+
+	/**
+	 * @return the predicted bits per byte of a Huffman coding of the data.
+	 */
+	public double bitsPerByte() {
+		return bitsPerByte;
+	}
+
+	/**
+	 * @return the predicted size in bytes of the compressed data, header included.
+	 */
+	public long predictedSize() {
+		return size(bitsPerByte);
+	}
+
+	/**
+	 * @return the smallest size in bytes the compressed data is expected to have,
+	 * with about 95% confidence.
+	 */
+	public long lowerBound() {
+		return size(Math.max(0, bitsPerByte - margin));
+	}
+
+	/**
+	 * @return the largest size in bytes the compressed data is expected to have,
+	 * with about 95% confidence.
+	 */
+	public long upperBound() {
+		return size(bitsPerByte + margin);
+	}
+
+	/**
+	 * @return false if even the lower bound is no smaller than the data, so
+	 * compressing it is most likely wasted work, true otherwise.
+	 */
+	public boolean isCompressible() {
+		return lowerBound() < totalBytes;
+	}
+
+	public String toString() {
+		return String.format("%d bytes, sampled %d, entropy %.3f bits per byte,"
+				+ " predicted %d bytes (%d to %d)", totalBytes, sampledBytes, entropy,
+				predictedSize(), lowerBound(), upperBound());
+	}
+
+	/**
+	 * Helper method that finds the compressed size in bytes for a number of bits per byte.
+	 */
+	private long size(double bits) {
+		return (headerBits + (long) Math.ceil(bits * totalBytes) + BITS_PER_WORD - 1) / BITS_PER_WORD;
+	}
+}
@@ -0,0 +1,250 @@
+import java.io.IOException;
+
+/**
+ * The code tables of an order-1 context model, where each byte is coded with the
+ * canonical code chosen by the byte before it. A context only gets its own table if
+ * the bits it saves pay for storing the table, every other context shares one table,
+ * so data with few or rarely seen contexts doesn't get a huge header. Tables are
+ * looked up in arrays indexed by context.
+ * <P>
+ * The tables are stored as the number of contexts with their own table, one bit for
+ * every context that is 1 if it has its own table, then the coding lengths of the
+ * shared table and of each own table in order of context, see
+ * <code>CanonicalCode.writeSparseLengths</code>.
+ */
+public class ContextCode implements IHuffConstants {
+
+	//the index of the table shared by every context without its own
+	private static final int SHARED_TABLE = 0;
+
+	//the table index of every context
+	private final int[] tableOf;
+	//the coding lengths of every table
+	private final int[][] lengths;
+	private final long dataBits;
+	private final long lengthLimitCost;
+
+	/**
+	 * Creates the code tables for the given counts.
+	 * @param histogram, the counts of every byte after every context.
+	 * @param maxLength, the longest coding allowed, at least BITS_PER_WORD.
+	 */
+	public ContextCode(ContextHistogram histogram, int maxLength) {
+		long[][] freqs = new long[ALPH_SIZE][];
+		long[] all = new long[ALPH_SIZE];
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			freqs[context] = histogram.counts(context);
+			for (int value = 0; value < ALPH_SIZE; value++) {
+				all[value] += freqs[context][value];
+			}
+		}
+		//gives a context its own table if that beats coding it with one table for all
+		int[] allLengths = limitedLengths(all, maxLength);
+		boolean[] own = new boolean[ALPH_SIZE];
+		int ownCount = 0;
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			int[] ownLengths = limitedLengths(freqs[context], maxLength);
+			long ownBits = LengthLimitedCode.dataBits(freqs[context], ownLengths)
+					+ CanonicalCode.sparseLengthsSize(ownLengths);
+			if (ownBits < LengthLimitedCode.dataBits(freqs[context], allLengths)) {
+				own[context] = true;
+				ownCount++;
+			}
+		}
+		//the shared table only codes the contexts left
+		long[] shared = new long[ALPH_SIZE];
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			if (!own[context]) {
+				for (int value = 0; value < ALPH_SIZE; value++) {
+					shared[value] += freqs[context][value];
+				}
+			}
+		}
+		tableOf = new int[ALPH_SIZE];
+		lengths = new int[ownCount + 1][];
+		lengths[SHARED_TABLE] = limitedLengths(shared, maxLength);
+		long bits = LengthLimitedCode.dataBits(shared, lengths[SHARED_TABLE]);
+		long cost = lengthLimitCost(shared, lengths[SHARED_TABLE]);
+		int table = SHARED_TABLE;
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			if (own[context]) {
+				tableOf[context] = ++table;
+				lengths[table] = limitedLengths(freqs[context], maxLength);
+				bits += LengthLimitedCode.dataBits(freqs[context], lengths[table]);
+				cost += lengthLimitCost(freqs[context], lengths[table]);
+			}
+		}
+		dataBits = bits;
+		lengthLimitCost = cost;
+	}
+
+	/**
+	 * Creates code tables read from a header.
+	 */
+	private ContextCode(int[] tableOf, int[][] lengths) {
+		this.tableOf = tableOf;
+		this.lengths = lengths;
+		dataBits = 0;
+		lengthLimitCost = 0;
+	}
+
+	/**
+	 * Helper method for the constructor that finds the length limited coding lengths
+	 * of one table, giving a single value a 1 bit coding so it can be stored.
+	 */
+	private static int[] limitedLengths(long[] freqs, int maxLength) {
+		int[] limited = LengthLimitedCode.lengths(freqs, maxLength);
+		for (int value = 0; value < freqs.length; value++) {
+			if (freqs[value] > 0) {
+				CanonicalCode.ensureCoded(limited, value);
+				break;
+			}
+		}
+		return limited;
+	}
+
+	/**
+	 * Helper method for the constructor that finds how many more bits the limited codings
+	 * of one table use than the codings of a Huffman tree would.
+	 */
+	private static long lengthLimitCost(long[] freqs, int[] limited) {
+		int used = 0;
+		for (long freq: freqs) {
+			if (freq > 0) {
+				used++;
+			}
+		}
+		if (used < 2) {
+			return 0;
+		}
+		HuffmanCodeBuilder tree = new HuffmanCodeBuilder(freqs.length);
+		tree.build(freqs);
+		int[] treeLengths = new int[freqs.length];
+		tree.fillCodes(new long[freqs.length], treeLengths);
+		return LengthLimitedCode.dataBits(freqs, limited) - LengthLimitedCode.dataBits(freqs, treeLengths);
+	}
+
+	/**
+	 * Writes the code tables to a BitOutputStream.
+	 * @param bos, the BitOutputStream to write the tables to.
+	 * @return the number of bits written.
+	 */
+	public long write(BitOutputStream bos) {
+		long bitsWritten = VarInt.write(bos, lengths.length - 1);
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			bos.writeBits(1, tableOf[context] == SHARED_TABLE ? 0 : 1);
+		}
+		bitsWritten += ALPH_SIZE;
+		for (int[] table: lengths) {
+			bitsWritten += CanonicalCode.writeSparseLengths(bos, table);
+		}
+		return bitsWritten;
+	}
+
+	/**
+	 * Reads code tables written by write.
+	 * @param bis, the BitInputStream to read the tables from.
+	 * @return the code tables read.
+	 * @throws IOException if the input runs out or the tables are bad.
+	 */
+	public static ContextCode read(BitInputStream bis) throws IOException {
+		long ownCount = VarInt.read(bis);
+		if (ownCount > ALPH_SIZE) {
+			throw new IOException("Format of file is bad, too many context tables.");
+		}
+		int[] tableOf = new int[ALPH_SIZE];
+		int table = SHARED_TABLE;
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			int bit = bis.readBits(1);
+			if (bit == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			if (bit == 1) {
+				tableOf[context] = ++table;
+			}
+		}
+		if (table != ownCount) {
+			throw new IOException("Format of file is bad, wrong number of context tables.");
+		}
+		int[][] lengths = new int[table + 1][];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = CanonicalCode.readSparseLengths(bis, ALPH_SIZE);
+		}
+		return new ContextCode(tableOf, lengths);
+	}
+
+	/**
+	 * Finds the number of bits write writes.
+	 * @return the size of the stored tables in bits.
+	 */
+	public long headerSize() {
+		long size = VarInt.size(lengths.length - 1) + ALPH_SIZE;
+		for (int[] table: lengths) {
+			size += CanonicalCode.sparseLengthsSize(table);
+		}
+		return size;
+	}
+
+	/**
+	 * Finds the number of bits of coded data for the counts these tables were made from.
+	 * @return the size of the coded data in bits, 0 for tables read from a header.
+	 */
+	public long dataBits() {
+		return dataBits;
+	}
+
+	/**
+	 * Finds how many more bits of data the length limited codings use than the
+	 * codings of Huffman trees would.
+	 * @return the number of extra bits, 0 for tables read from a header.
+	 */
+	public long lengthLimitCost() {
+		return lengthLimitCost;
+	}
+
+	/**
+	 * Finds the number of tables, counting the shared table.
+	 * @return the number of tables.
+	 */
+	public int tableCount() {
+		return lengths.length;
+	}
+
+	/**
+	 * Creates an encoder for every context. Contexts sharing a table share an encoder.
+	 * @return the encoder of every context, indexed by the byte before.
+	 */
+	public HuffmanEncoder[] encoders() {
+		HuffmanEncoder[] tables = new HuffmanEncoder[lengths.length];
+		for (int i = 0; i < tables.length; i++) {
+			tables[i] = new HuffmanEncoder(CanonicalCode.codesFromLengths(lengths[i]), lengths[i]);
+		}
+		HuffmanEncoder[] encoders = new HuffmanEncoder[ALPH_SIZE];
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			encoders[context] = tables[tableOf[context]];
+		}
+		return encoders;
+	}
+
+	/**
+	 * Creates a decoder for every context. Contexts sharing a table share a decoder.
+	 * @return the decoder of every context, indexed by the byte before, or null for
+	 * contexts whose table has no codings.
+	 */
+	public HuffmanDecoder[] decoders() {
+		HuffmanDecoder[] tables = new HuffmanDecoder[lengths.length];
+		for (int i = 0; i < tables.length; i++) {
+			for (int length: lengths[i]) {
+				if (length > 0) {
+					tables[i] = new HuffmanDecoder(CanonicalCode.codesFromLengths(lengths[i]), lengths[i]);
+					break;
+				}
+			}
+		}
+		HuffmanDecoder[] decoders = new HuffmanDecoder[ALPH_SIZE];
+		for (int context = 0; context < ALPH_SIZE; context++) {
+			decoders[context] = tables[tableOf[context]];
+		}
+		return decoders;
+	}
+}
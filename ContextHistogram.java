@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts how many times each byte value follows each other byte value in some data,
+ * for coding every byte with a code chosen by the byte before it. The first byte is
+ * counted as following a 0.
+ */
+public class ContextHistogram implements IHuffConstants {
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	//counts indexed by the byte before above the byte itself
+	private final long[] counts;
+	private int context;
+	private long size;
+
+	/**
+	 * Creates an empty ContextHistogram.
+	 */
+	public ContextHistogram() {
+		counts = new long[ALPH_SIZE * ALPH_SIZE];
+	}
+
+	/**
+	 * Counts the bytes in part of an array, after the bytes counted before.
+	 * @param data, the array holding the bytes to count.
+	 * @param offset, the index of the first byte to count.
+	 * @param length, the number of bytes to count.
+	 */
+	public void add(byte[] data, int offset, int length) {
+		int previous = context;
+		for (int i = offset; i < offset + length; i++) {
+			int value = data[i] & 0xff;
+			counts[(previous << BITS_PER_WORD) | value]++;
+			previous = value;
+		}
+		context = previous;
+		size += length;
+	}
+
+	/**
+	 * Counts every byte left in a stream. The stream is not closed.
+	 * @param in, the stream holding the bytes to count.
+	 * @throws IOException if reading from the stream fails.
+	 */
+	public void add(InputStream in) throws IOException {
+		byte[] chunk = new byte[CHUNK_SIZE];
+		int read = in.read(chunk, 0, chunk.length);
+		while (read != -1) {
+			add(chunk, 0, read);
+			read = in.read(chunk, 0, chunk.length);
+		}
+	}
+
+	/**
+	 * Finds the counts of the bytes that follow one byte value.
+	 * @param context, the byte value before the counted bytes.
+	 * @return an array of ALPH_SIZE counts indexed by value.
+	 */
+	public long[] counts(int context) {
+		long[] row = new long[ALPH_SIZE];
+		System.arraycopy(counts, context << BITS_PER_WORD, row, 0, ALPH_SIZE);
+		return row;
+	}
+
+	/**
+	 * Finds the number of bytes counted.
+	 * @return the total number of bytes counted.
+	 */
+	public long size() {
+		return size;
+	}
+}
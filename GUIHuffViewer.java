@@ -1,7 +1,6 @@
 import java.awt.BorderLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -9,8 +8,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
@@ -53,6 +50,7 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
     private int myHeaderFormat;
     private Thread myFirstFileThread;
     private boolean myFirstReadingDone;
+    private CompressibilityEstimator myEstimator = new CompressibilityEstimator();
 
     private static JFileChooser ourChooser = 
             new JFileChooser(System.getProperties().getProperty("user.dir"));
@@ -125,6 +123,17 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
      * @return The file opened.
      */
     protected File doRead() {
+        return doRead(false);
+    }
+
+    /**
+     * Read a file. Choice is via a pop up window. When compressing, unless
+     * compression is forced, a sample of the file is checked first and a file
+     * that is not expected to get smaller is not read at all.
+     * @param compressing true if the file is read to be compressed.
+     * @return The file opened, or null if none was.
+     */
+    private File doRead(boolean compressing) {
         // Get the user choice for the file.
         int retval = ourChooser.showOpenDialog(null);
         if (retval != JFileChooser.APPROVE_OPTION) {
@@ -132,6 +141,10 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
         }
         showMessage("reading/initializing");
         myFile = ourChooser.getSelectedFile();
+        if (compressing && !myForce && isIncompressible(myFile)) {
+            myFile = null;
+            return null;
+        }
         
         // Create an input stream for the file and a progress monitor.
         final ProgressMonitorInputStream pmis 
@@ -213,6 +226,136 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
 
         group.add(treeHeaderButton);
         headerMenu.add(treeHeaderButton);
+
+        // create the radio button for canonical code format
+        JRadioButtonMenuItem canonicalHeaderButton 
+        = new JRadioButtonMenuItem();
+        canonicalHeaderButton.setSelected(false);
+        canonicalHeaderButton.setAction(new AbstractAction("Use Canonical Code Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_CANONICAL;
+            }
+        });
+
+        group.add(canonicalHeaderButton);
+        headerMenu.add(canonicalHeaderButton);
+
+        // create the radio button for the single pass block format
+        JRadioButtonMenuItem blockHeaderButton 
+        = new JRadioButtonMenuItem();
+        blockHeaderButton.setSelected(false);
+        blockHeaderButton.setAction(new AbstractAction("Use Single Pass Block Format") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_BLOCKS;
+            }
+        });
+
+        group.add(blockHeaderButton);
+        headerMenu.add(blockHeaderButton);
+
+        // create the radio button for the seekable block format
+        JRadioButtonMenuItem seekableHeaderButton 
+        = new JRadioButtonMenuItem();
+        seekableHeaderButton.setSelected(false);
+        seekableHeaderButton.setAction(new AbstractAction("Use Seekable Block Format") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_SEEKABLE_BLOCKS;
+            }
+        });
+
+        group.add(seekableHeaderButton);
+        headerMenu.add(seekableHeaderButton);
+
+        // create the radio button for the count format for files over 2 GB
+        JRadioButtonMenuItem varIntHeaderButton 
+        = new JRadioButtonMenuItem();
+        varIntHeaderButton.setSelected(false);
+        varIntHeaderButton.setAction(new AbstractAction("Use Variable Length Count Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_VARINT_COUNTS;
+            }
+        });
+
+        group.add(varIntHeaderButton);
+        headerMenu.add(varIntHeaderButton);
+
+        // create the radio button for the wide symbol format
+        JRadioButtonMenuItem symbolsHeaderButton 
+        = new JRadioButtonMenuItem();
+        symbolsHeaderButton.setSelected(false);
+        symbolsHeaderButton.setAction(new AbstractAction("Use 16 Bit Symbol Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_SYMBOLS;
+            }
+        });
+
+        group.add(symbolsHeaderButton);
+        headerMenu.add(symbolsHeaderButton);
+
+        // create the radio button for the order-1 context format
+        JRadioButtonMenuItem contextsHeaderButton 
+        = new JRadioButtonMenuItem();
+        contextsHeaderButton.setSelected(false);
+        contextsHeaderButton.setAction(new AbstractAction("Use Context Table Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_CONTEXTS;
+            }
+        });
+
+        group.add(contextsHeaderButton);
+        headerMenu.add(contextsHeaderButton);
+
+        // create the radio button for the one pass adaptive format
+        JRadioButtonMenuItem adaptiveHeaderButton 
+        = new JRadioButtonMenuItem();
+        adaptiveHeaderButton.setSelected(false);
+        adaptiveHeaderButton.setAction(new AbstractAction("Use Adaptive Format") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_ADAPTIVE;
+            }
+        });
+
+        group.add(adaptiveHeaderButton);
+        headerMenu.add(adaptiveHeaderButton);
+
+        // create the radio button for the compact count format
+        JRadioButtonMenuItem compactCountsHeaderButton 
+        = new JRadioButtonMenuItem();
+        compactCountsHeaderButton.setSelected(false);
+        compactCountsHeaderButton.setAction(new AbstractAction("Use Compact Count Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_COMPACT_COUNTS;
+            }
+        });
+
+        group.add(compactCountsHeaderButton);
+        headerMenu.add(compactCountsHeaderButton);
+
+        // create the radio button for the compact tree format
+        JRadioButtonMenuItem compactTreeHeaderButton 
+        = new JRadioButtonMenuItem();
+        compactTreeHeaderButton.setSelected(false);
+        compactTreeHeaderButton.setAction(new AbstractAction("Use Compact Tree Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_COMPACT_TREE;
+            }
+        });
+
+        group.add(compactTreeHeaderButton);
+        headerMenu.add(compactTreeHeaderButton);
+
+        // create the radio button that picks the smallest header per file
+        JRadioButtonMenuItem autoHeaderButton 
+        = new JRadioButtonMenuItem();
+        autoHeaderButton.setSelected(false);
+        autoHeaderButton.setAction(new AbstractAction("Use Smallest Header") {
+            public void actionPerformed(ActionEvent ev) {
+                myHeaderFormat = IHuffConstants.STORE_AUTO;
+            }
+        });
+
+        group.add(autoHeaderButton);
+        headerMenu.add(autoHeaderButton);
         return headerMenu;
     }
 
@@ -314,7 +457,7 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
     }
 
     private void doSave() {
-        myFile = doRead();
+        myFile = doRead(true);
         if (myFile == null){
             return;
         }
@@ -374,6 +517,30 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
         myFile = null;
     }
 
+    /**
+     * Sample a file to see if compressing it is futile before reading all of it,
+     * for the header formats the estimate fits.
+     * @param f The file to sample.
+     * @return true if the file is not expected to get any smaller.
+     */
+    private boolean isIncompressible(File f) {
+        if (!CompressibilityEstimator.appliesTo(myHeaderFormat)) {
+            return false;
+        }
+        try {
+            CompressionEstimate estimate = myEstimator.estimate(f);
+            if (!estimate.isCompressible()) {
+                showError("not compressing " + f.getName() + ", estimated size is "
+                        + estimate.predictedSize() + " of " + estimate.totalBytes()
+                        + " bytes.\n Select \"force compression\" option to compress anyway.");
+                return true;
+            }
+        } catch (IOException e) {
+            // read the whole file instead
+        }
+        return false;
+    }
+
     private void cleanUp(File f) {
         if (!f.delete()) {
             showError("trouble deleting " + f.getName());
@@ -455,18 +622,10 @@ public class GUIHuffViewer extends JFrame implements IHuffViewer {
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private ByteArrayInputStream getFastByteReader(File f){
-        ByteBuffer buffer = null;
+    private InputStream getFastByteReader(File f){
         try {
-            FileChannel channel = new FileInputStream(f).getChannel();
-            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-            byte[] barray = new byte[buffer.limit()];
-
-            if (barray.length != channel.size()){               
-                showError(String.format("Reading %s error: lengths differ %d %ld\n",f.getName(),barray.length,channel.size()));
-            }
-            buffer.get(barray);
-            return new ByteArrayInputStream(barray);
+            // reads the mapped file in place instead of copying it onto the heap
+            return new MappedInputStream(f);
         } catch (IOException e) {
             e.printStackTrace();
         }
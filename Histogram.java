@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Counts how many times each byte value occurs in some data. Counting is done on
+ * whole chunks of bytes into four interleaved tables of ints, so runs of the same
+ * byte don't make each count wait on the one before it, and the tables are added
+ * into the long totals at the end of each chunk.
+ */
+public class Histogram implements IHuffConstants {
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private final int[] counts0;
+	private final int[] counts1;
+	private final int[] counts2;
+	private final int[] counts3;
+	private final long[] totals;
+	private long size;
+
+	/**
+	 * Creates an empty Histogram.
+	 */
+	public Histogram() {
+		counts0 = new int[ALPH_SIZE];
+		counts1 = new int[ALPH_SIZE];
+		counts2 = new int[ALPH_SIZE];
+		counts3 = new int[ALPH_SIZE];
+		totals = new long[ALPH_SIZE];
+	}
+
+	/**
+	 * Counts the bytes in part of an array.
+	 * @param data, the array holding the bytes to count.
+	 * @param offset, the index of the first byte to count.
+	 * @param length, the number of bytes to count.
+	 */
+	public void add(byte[] data, int offset, int length) {
+		while (length > 0) {
+			int chunk = Math.min(length, CHUNK_SIZE);
+			int end = offset + chunk;
+			int i = offset;
+			//counts four bytes at a time into different tables
+			for (; i + 3 < end; i += 4) {
+				counts0[data[i] & 0xff]++;
+				counts1[data[i + 1] & 0xff]++;
+				counts2[data[i + 2] & 0xff]++;
+				counts3[data[i + 3] & 0xff]++;
+			}
+			for (; i < end; i++) {
+				counts0[data[i] & 0xff]++;
+			}
+			addCounts(chunk);
+			offset = end;
+			length -= chunk;
+		}
+	}
+
+	/**
+	 * Counts the remaining bytes of a buffer without changing its position. Buffers
+	 * not backed by an array are read in place eight bytes at a time.
+	 * @param data, the buffer holding the bytes to count.
+	 */
+	public void add(ByteBuffer data) {
+		if (data.hasArray()) {
+			add(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			return;
+		}
+		ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int index = buffer.position();
+		int limit = buffer.limit();
+		while (index < limit) {
+			int start = index;
+			int end = Math.min(limit, index + CHUNK_SIZE);
+			//counts eight bytes at a time from one read
+			for (; index + 7 < end; index += 8) {
+				long word = buffer.getLong(index);
+				counts0[(int) word & 0xff]++;
+				counts1[(int) (word >>> 8) & 0xff]++;
+				counts2[(int) (word >>> 16) & 0xff]++;
+				counts3[(int) (word >>> 24) & 0xff]++;
+				counts0[(int) (word >>> 32) & 0xff]++;
+				counts1[(int) (word >>> 40) & 0xff]++;
+				counts2[(int) (word >>> 48) & 0xff]++;
+				counts3[(int) (word >>> 56) & 0xff]++;
+			}
+			for (; index < end; index++) {
+				counts0[buffer.get(index) & 0xff]++;
+			}
+			addCounts(end - start);
+		}
+	}
+
+	/**
+	 * Counts every byte left in a stream. The stream is not closed. The bytes of a
+	 * MappedInputStream are counted in place.
+	 * @param in, the stream holding the bytes to count.
+	 * @throws IOException if reading from the stream fails.
+	 */
+	public void add(InputStream in) throws IOException {
+		if (in instanceof MappedInputStream) {
+			MappedInputStream mapped = (MappedInputStream) in;
+			ByteBuffer bytes = mapped.readBuffer(Integer.MAX_VALUE);
+			while (bytes != null) {
+				add(bytes);
+				bytes = mapped.readBuffer(Integer.MAX_VALUE);
+			}
+			return;
+		}
+		byte[] chunk = new byte[CHUNK_SIZE];
+		int read = in.read(chunk, 0, chunk.length);
+		while (read != -1) {
+			add(chunk, 0, read);
+			read = in.read(chunk, 0, chunk.length);
+		}
+	}
+
+	/**
+	 * Adds the counts of another Histogram to this one.
+	 * @param other, the Histogram to add.
+	 */
+	public void add(Histogram other) {
+		for (int value = 0; value < ALPH_SIZE; value++) {
+			totals[value] += other.totals[value];
+		}
+		size += other.size;
+	}
+
+	/**
+	 * Helper method for the add methods that moves the interleaved counts of a chunk
+	 * into the totals.
+	 * @param chunkSize, the number of bytes counted in the chunk.
+	 */
+	private void addCounts(int chunkSize) {
+		for (int value = 0; value < ALPH_SIZE; value++) {
+			totals[value] += (long) counts0[value] + counts1[value] + counts2[value] + counts3[value];
+			counts0[value] = 0;
+			counts1[value] = 0;
+			counts2[value] = 0;
+			counts3[value] = 0;
+		}
+		size += chunkSize;
+	}
+
+	/**
+	 * Finds the count of every byte value.
+	 * @return an array of ALPH_SIZE counts indexed by byte value.
+	 */
+	public long[] counts() {
+		return totals.clone();
+	}
+
+	/**
+	 * Finds the number of bytes counted.
+	 * @return the total number of bytes counted.
+	 */
+	public long size() {
+		return size;
+	}
+}
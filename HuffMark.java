@@ -2,23 +2,43 @@ import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 
 import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
+/**
+ * Times compressing files. With no arguments a directory is chosen in a window and
+ * each file in it is compressed once to a file next to it. With arguments it runs
+ * without a display, for build and benchmark machines:
+ * <pre>
+ * java HuffMark [-format counts] [-warmup 2] [-runs 5] [-output text|csv|json]
+ *               [-out reportFile] [-table tableFile] [-skip] fileOrDirectory...
+ * </pre>
+ * Every file in or below the given directories is compressed and uncompressed in
+ * memory <tt>warmup</tt> times untimed, so the JIT compiles the hot paths, then
+ * <tt>runs</tt> times timed, with preprocess, compress and uncompress timed separately.
+ * The report has the throughput of each step in MB/s, the 50th and 99th percentile
+ * of the time one file took, and the compression ratio, for each file and for all
+ * of them together. The format is a STORE_ constant without the STORE_, <tt>-table</tt>
+ * loads the shared table for <tt>-format shared_table</tt>, and <tt>-skip</tt> leaves
+ * out files the CompressibilityEstimator finds won't get smaller, for the formats
+ * its estimate fits.
+ */
 public class HuffMark {
-    protected static JFileChooser ourOpenChooser = new JFileChooser(System
-            .getProperties().getProperty("user.dir"));
-    static {
-        ourOpenChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-    }
+    protected static JFileChooser ourOpenChooser;
     
     private double myTotalCompressTime;
     private long myTotalUncompressedBytes;
     private long myTotalCompressedBytes;
+    private int mySkippedFiles;
     
     private IHuffProcessor myHuffer;
+    private CompressibilityEstimator myEstimator = new CompressibilityEstimator();
     private static String SUFFIX = ".hf";
     private static boolean FAST_READER = true;
+    // sample each file first and don't compress files that won't get smaller
+    private static boolean SKIP_INCOMPRESSIBLE = true;
     
     public void compress(File f) throws IOException{
         
@@ -26,7 +46,26 @@ public class HuffMark {
         if (f.isDirectory()) return; // don't read directories
         
         double start = System.currentTimeMillis();
-        myHuffer.preprocessCompress(getFastByteReader(f), IHuffProcessor.STORE_COUNTS);
+        if (SKIP_INCOMPRESSIBLE) {
+            CompressionEstimate estimate = myEstimator.estimate(f);
+            if (!estimate.isCompressible()) {
+                double time = (System.currentTimeMillis() - start) / 1000.0;
+                // counted as stored, the size it would be kept at
+                myTotalUncompressedBytes += f.length();
+                myTotalCompressedBytes += f.length();
+                myTotalCompressTime += time;
+                mySkippedFiles++;
+                System.out.printf("%s skipped, estimated %d of\t %d in\t %.3f\n",
+                        f.getName(), estimate.predictedSize(), f.length(), time);
+                return;
+            }
+        }
+        if (myHuffer instanceof SimpleHuffProcessor) {
+            // counts big files on several threads
+            ((SimpleHuffProcessor) myHuffer).preprocessCompress(f, IHuffProcessor.STORE_COUNTS);
+        } else {
+            myHuffer.preprocessCompress(getFastByteReader(f), IHuffProcessor.STORE_COUNTS);
+        }
         File outFile = new File(getCompressedName(f));
         FileOutputStream out = new FileOutputStream(outFile);
         System.out.println("compressing to: "+outFile.getCanonicalPath());
@@ -46,6 +85,11 @@ public class HuffMark {
         if (myHuffer == null){
             myHuffer = new SimpleHuffProcessor();
         }
+        if (ourOpenChooser == null) {
+            // made only when needed so headless runs never touch Swing
+            ourOpenChooser = new JFileChooser(System.getProperties().getProperty("user.dir"));
+            ourOpenChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        }
         int action = ourOpenChooser.showOpenDialog(null);
         if (action == JFileChooser.APPROVE_OPTION){
             File dir = ourOpenChooser.getSelectedFile();
@@ -58,12 +102,223 @@ public class HuffMark {
             System.out.printf("total compressed bytes %d\n", myTotalCompressedBytes);
             System.out.printf("total percent compression %.3f\n",100.0* (1.0 - 1.0*myTotalCompressedBytes/myTotalUncompressedBytes));
             System.out.printf("compression time: %.3f\n",myTotalCompressTime);
+            System.out.printf("incompressible files skipped: %d\n", mySkippedFiles);
         }
     }
     
     public static void main(String[] args) throws IOException{
         HuffMark hf = new HuffMark();
-        hf.doMark();
+        if (args.length == 0) {
+            hf.doMark();
+            return;
+        }
+        try {
+            hf.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        hf.mark();
+    }
+    
+    private static final String USAGE = "usage: java HuffMark [-format counts] [-warmup 2] [-runs 5]"
+            + " [-output text|csv|json] [-out reportFile] [-table tableFile] [-skip] fileOrDirectory...";
+    
+    private int myFormat = IHuffConstants.STORE_COUNTS;
+    private String myFormatName = "counts";
+    private int myWarmup = 2;
+    private int myRuns = 5;
+    private String myOutput = "text";
+    private File myReportFile;
+    private File myTableFile;
+    private boolean mySkip;
+    private List<File> myFiles = new ArrayList<File>();
+    
+    /**
+     * Reads the command line options and finds the files to mark.
+     * @param args the command line arguments
+     * @throws IllegalArgumentException if an option or file is bad
+     */
+    public void parseArgs(String[] args) {
+        int i = 0;
+        while (i < args.length && args[i].startsWith("-")) {
+            String option = args[i++];
+            if (option.equals("-skip")) {
+                mySkip = true;
+                continue;
+            }
+            if (i == args.length) {
+                throw new IllegalArgumentException("missing value for " + option);
+            }
+            String value = args[i++];
+            if (option.equals("-format")) {
+                myFormatName = value.toLowerCase(Locale.ROOT);
+                myFormat = headerFormat(myFormatName);
+            } else if (option.equals("-warmup")) {
+                myWarmup = count(option, value, 0);
+            } else if (option.equals("-runs")) {
+                myRuns = count(option, value, 1);
+            } else if (option.equals("-output")) {
+                if (!Arrays.asList("text", "csv", "json").contains(value)) {
+                    throw new IllegalArgumentException("output must be text, csv or json");
+                }
+                myOutput = value;
+            } else if (option.equals("-out")) {
+                myReportFile = new File(value);
+            } else if (option.equals("-table")) {
+                myTableFile = new File(value);
+            } else {
+                throw new IllegalArgumentException("unknown option " + option);
+            }
+        }
+        if (i == args.length) {
+            throw new IllegalArgumentException("no files or directories given");
+        }
+        for (; i < args.length; i++) {
+            File f = new File(args[i]);
+            if (!f.exists()) {
+                throw new IllegalArgumentException("no such file or directory " + f);
+            }
+            addFiles(f);
+        }
+    }
+    
+    /**
+     * Times every file found by <code>parseArgs</code> and writes the report.
+     * @throws IOException if a file cannot be read or does not uncompress to itself
+     */
+    public void mark() throws IOException {
+        SimpleHuffProcessor processor = new SimpleHuffProcessor();
+        if (myTableFile != null) {
+            processor.setSharedTable(CodeTable.read(myTableFile));
+        }
+        List<File> files = new ArrayList<File>();
+        int skipped = 0;
+        for (File f : myFiles) {
+            if (mySkip && CompressibilityEstimator.appliesTo(myFormat)
+                    && !myEstimator.estimate(f).isCompressible()) {
+                skipped++;
+            } else {
+                files.add(f);
+            }
+        }
+        for (int w = 0; w < myWarmup; w++) {
+            for (File f : files) {
+                markFile(processor, f, new MarkResult(f.getPath(), f.length(), 1));
+            }
+        }
+        List<MarkResult> results = new ArrayList<MarkResult>();
+        for (File f : files) {
+            results.add(new MarkResult(f.getPath(), f.length(), myRuns));
+        }
+        // every file is run once before any file is run again
+        for (int run = 0; run < myRuns; run++) {
+            for (int i = 0; i < files.size(); i++) {
+                markFile(processor, files.get(i), results.get(i));
+            }
+        }
+        PrintStream out = myReportFile == null ? System.out
+                : new PrintStream(new FileOutputStream(myReportFile), false, "UTF-8");
+        report(out, results, MarkResult.total("TOTAL", results), skipped);
+        out.flush();
+        if (out != System.out) {
+            out.close();
+        }
+    }
+    
+    /*
+     * Preprocess, compress and uncompress one file in memory once, timing each step.
+     */
+    private void markFile(SimpleHuffProcessor processor, File f, MarkResult result) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+                (int) Math.min(Integer.MAX_VALUE - 8, f.length() + 64));
+        long start = System.nanoTime();
+        processor.preprocessCompressLarge(f, myFormat);
+        long preprocessed = System.nanoTime();
+        processor.compressLarge(getFastByteReader(f), compressed, true);
+        long compressDone = System.nanoTime();
+        byte[] bytes = compressed.toByteArray();
+        long uncompressStart = System.nanoTime();
+        long bits = processor.uncompressLarge(new ByteArrayInputStream(bytes), OutputStream.nullOutputStream());
+        long end = System.nanoTime();
+        if (bits != f.length() * IHuffConstants.BITS_PER_WORD) {
+            throw new IOException(f + " did not uncompress to its original size.");
+        }
+        result.record(preprocessed - start, compressDone - preprocessed, end - uncompressStart, bytes.length);
+    }
+    
+    /*
+     * Write the results in the chosen output format.
+     */
+    private void report(PrintStream out, List<MarkResult> results, MarkResult total, int skipped) {
+        if (myOutput.equals("csv")) {
+            out.println(MarkResult.CSV_HEADER);
+            for (MarkResult result : results) {
+                out.println(result.csvRow());
+            }
+            out.println(total.csvRow());
+        } else if (myOutput.equals("json")) {
+            out.printf("{\"format\": %s, \"warmup\": %d, \"runs\": %d, \"skipped\": %d,\n",
+                    MarkResult.jsonString(myFormatName), myWarmup, myRuns, skipped);
+            out.println(" \"files\": [");
+            for (int i = 0; i < results.size(); i++) {
+                out.println("  " + results.get(i).json() + (i < results.size() - 1 ? "," : ""));
+            }
+            out.println(" ],");
+            out.println(" \"total\": " + total.json() + "}");
+        } else {
+            for (MarkResult result : results) {
+                out.println(result.textLine());
+            }
+            out.println("--------");
+            out.println(total.textLine());
+            out.printf("format %s, %d warmup and %d timed runs, incompressible files skipped: %d\n",
+                    myFormatName, myWarmup, myRuns, skipped);
+        }
+    }
+    
+    /*
+     * Add a file, or every file below a directory in name order, leaving out .hf files.
+     */
+    private void addFiles(File f) {
+        if (f.isDirectory()) {
+            File[] list = f.listFiles();
+            if (list != null) {
+                Arrays.sort(list);
+                for (File child : list) {
+                    addFiles(child);
+                }
+            }
+        } else if (!f.getName().endsWith(SUFFIX)) {
+            myFiles.add(f);
+        }
+    }
+    
+    /*
+     * Find the header format constant named by a STORE_ constant without the STORE_.
+     */
+    private static int headerFormat(String name) {
+        try {
+            return IHuffConstants.class.getField("STORE_" + name.toUpperCase(Locale.ROOT)).getInt(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("unknown format " + name);
+        }
+    }
+    
+    /*
+     * Parse a count given for an option.
+     */
+    private static int count(String option, String value, int min) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= min) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " must be a number of at least " + min);
     }
     
     
@@ -88,17 +343,9 @@ public class HuffMark {
             return new FileInputStream(f);
         }
         
-        ByteBuffer buffer = null;
          try {
-             FileChannel channel = new FileInputStream(f).getChannel();
-             buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-             byte[] barray = new byte[buffer.limit()];
-           
-             if (barray.length != channel.size()){               
-                 System.err.println(String.format("Reading %s error: lengths differ %d %ld\n",f.getName(),barray.length,channel.size()));
-             }
-             buffer.get(barray);
-             return new ByteArrayInputStream(barray);
+             // reads the mapped file in place instead of copying it onto the heap
+             return new MappedInputStream(f);
          } catch (IOException e) {
              e.printStackTrace();
          }
@@ -0,0 +1,191 @@
+/**
+ * Builds Huffman trees in primitive arrays instead of TreeNode objects. Values are
+ * sorted by frequency once, then the tree is built in linear time with two queues:
+ * one of the sorted leaves and one of the internal nodes, which are made in order of
+ * frequency. Ties are broken the same way as HuffPriorityQueue, where among nodes of
+ * the same frequency the one queued first comes out first, so the trees are exactly
+ * the trees HuffmanTree builds from the same frequencies.
+ * <P>
+ * A builder can be reused for any number of trees without allocating.
+ * <P>
+ * Nodes are numbered with the leaves first, in sorted order, followed by the internal
+ * nodes in the order they were made. The root is the last node.
+ */
+public class HuffmanCodeBuilder {
+
+	private final int[] leafValues;
+	private final long[] weights;
+	private final int[] left;
+	private final int[] right;
+	private final int[] scratch;
+	private final int[] depths;
+	private final long[] paths;
+	private int numLeaves;
+
+	/**
+	 * Creates a builder for trees of values from 0 up to the given alphabet size.
+	 * @param alphabetSize, the number of possible values.
+	 */
+	public HuffmanCodeBuilder(int alphabetSize) {
+		leafValues = new int[alphabetSize];
+		scratch = new int[alphabetSize];
+		weights = new long[2 * alphabetSize];
+		left = new int[alphabetSize];
+		right = new int[alphabetSize];
+		depths = new int[2 * alphabetSize];
+		paths = new long[2 * alphabetSize];
+	}
+
+	/**
+	 * Builds the Huffman tree for the given frequencies, replacing any earlier tree.
+	 * pre: at least one frequency is above 0.
+	 * @param freqs, the frequency of each value, 0 for values not in the tree.
+	 */
+	public void build(long[] freqs) {
+		numLeaves = 0;
+		for (int value = 0; value < freqs.length; value++) {
+			if (freqs[value] > 0) {
+				leafValues[numLeaves++] = value;
+			}
+		}
+		if (numLeaves == 0) {
+			throw new IllegalArgumentException("Violation of precondition: build."
+					+ " At least one value must have a frequency.");
+		}
+		sortByFreq(leafValues, numLeaves, freqs, scratch);
+		for (int i = 0; i < numLeaves; i++) {
+			weights[i] = freqs[leafValues[i]];
+		}
+		//merges the two smallest nodes from the front of the two queues
+		int nextLeaf = 0;
+		int nextInternal = numLeaves;
+		int end = numLeaves;
+		while (end < 2 * numLeaves - 1) {
+			int first = nextLeaf < numLeaves && (nextInternal == end
+					|| weights[nextLeaf] <= weights[nextInternal]) ? nextLeaf++ : nextInternal++;
+			int second = nextLeaf < numLeaves && (nextInternal == end
+					|| weights[nextLeaf] <= weights[nextInternal]) ? nextLeaf++ : nextInternal++;
+			left[end - numLeaves] = first;
+			right[end - numLeaves] = second;
+			weights[end] = weights[first] + weights[second];
+			end++;
+		}
+	}
+
+	/**
+	 * Fills the given arrays with the Huffman coding of each value of the tree, in the
+	 * same form as HuffmanTree.fillCodes.
+	 * @param codes, the array to fill with the bits of each coding.
+	 * @param lengths, the array to fill with the number of bits in each coding.
+	 */
+	public void fillCodes(long[] codes, int[] lengths) {
+		int root = root();
+		depths[root] = 0;
+		paths[root] = 0;
+		//children are always numbered below their parent, so parents are done first
+		for (int node = root; node >= numLeaves; node--) {
+			int depth = depths[node] + 1;
+			if (depth > Long.SIZE) {
+				throw new IllegalStateException("Huffman coding longer than " + Long.SIZE + " bits.");
+			}
+			depths[getLeft(node)] = depth;
+			paths[getLeft(node)] = paths[node] << 1;
+			depths[getRight(node)] = depth;
+			paths[getRight(node)] = (paths[node] << 1) | 1;
+		}
+		for (int leaf = 0; leaf < numLeaves; leaf++) {
+			codes[leafValues[leaf]] = paths[leaf];
+			lengths[leafValues[leaf]] = depths[leaf];
+		}
+	}
+
+	/**
+	 * @return the number of the root node of the tree.
+	 */
+	public int root() {
+		return 2 * numLeaves - 2;
+	}
+
+	/**
+	 * @param node, the number of a node of the tree.
+	 * @return true if the node is a leaf, false if it is an internal node.
+	 */
+	public boolean isLeaf(int node) {
+		return node < numLeaves;
+	}
+
+	/**
+	 * @param node, the number of a leaf of the tree.
+	 * @return the value stored in the leaf.
+	 */
+	public int getValue(int node) {
+		return leafValues[node];
+	}
+
+	/**
+	 * @param node, the number of an internal node of the tree.
+	 * @return the number of its left child.
+	 */
+	public int getLeft(int node) {
+		return left[node - numLeaves];
+	}
+
+	/**
+	 * @param node, the number of an internal node of the tree.
+	 * @return the number of its right child.
+	 */
+	public int getRight(int node) {
+		return right[node - numLeaves];
+	}
+
+	/**
+	 * Finds and returns the number of nodes in the tree.
+	 * @return the size of the tree.
+	 */
+	public int size() {
+		return 2 * numLeaves - 1;
+	}
+
+	/**
+	 * Finds and returns the number of leaf nodes in the tree.
+	 * @return the total number of leaf nodes.
+	 */
+	public int numLeafNodes() {
+		return numLeaves;
+	}
+
+	/**
+	 * Sorts the first count values by frequency, keeping values of the same frequency in
+	 * the order they were in.
+	 * @param values, the values to sort.
+	 * @param count, the number of values to sort.
+	 * @param freqs, the frequency of each value.
+	 * @param scratch, an array at least count long used while sorting.
+	 */
+	static void sortByFreq(int[] values, int count, long[] freqs, int[] scratch) {
+		//bottom up merge sort, which is stable
+		int[] from = values;
+		int[] to = scratch;
+		for (int width = 1; width < count; width *= 2) {
+			for (int start = 0; start < count; start += 2 * width) {
+				int mid = Math.min(start + width, count);
+				int end = Math.min(start + 2 * width, count);
+				int left = start;
+				int right = mid;
+				for (int i = start; i < end; i++) {
+					if (left < mid && (right == end || freqs[from[left]] <= freqs[from[right]])) {
+						to[i] = from[left++];
+					} else {
+						to[i] = from[right++];
+					}
+				}
+			}
+			int[] temp = from;
+			from = to;
+			to = temp;
+		}
+		if (from != values) {
+			System.arraycopy(from, 0, values, 0, count);
+		}
+	}
+}
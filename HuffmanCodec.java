@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compresses and uncompresses channels and ByteBuffers directly, for callers that
+ * already hold their data in buffers and don't want it adapted into streams.
+ * Compression writes block files, see <code>BlockCompressor</code>, and uncompression
+ * reads any file a HuffProcessor writes. Sizes are in bytes.
+ * <P>
+ * A HuffmanCodec holds no state between calls, so one codec can be used by any
+ * number of threads at once.
+ */
+public class HuffmanCodec implements IHuffConstants {
+
+	private final BlockCompressor compressor;
+	private final ForkJoinPool pool;
+	private final CodeTableRegistry tables;
+
+	/**
+	 * Creates a HuffmanCodec with the default block size and coding length limit that
+	 * codes blocks on the common ForkJoinPool.
+	 */
+	public HuffmanCodec() {
+		this(BlockCompressor.DEFAULT_BLOCK_SIZE, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a HuffmanCodec.
+	 * @param blockSize, the most bytes in one block, between BlockCompressor.MIN_BLOCK_SIZE
+	 * and BlockCompressor.MAX_BLOCK_SIZE.
+	 * @param maxCodeLength, the longest coding allowed, at least BITS_PER_WORD.
+	 * @param pool, the ForkJoinPool to code blocks on, or null to code on the calling thread.
+	 */
+	public HuffmanCodec(int blockSize, int maxCodeLength, ForkJoinPool pool) {
+		this(blockSize, maxCodeLength, pool, null);
+	}
+
+	/**
+	 * Creates a HuffmanCodec that can also uncompress files coded with shared code tables.
+	 * @param blockSize, the most bytes in one block, between BlockCompressor.MIN_BLOCK_SIZE
+	 * and BlockCompressor.MAX_BLOCK_SIZE.
+	 * @param maxCodeLength, the longest coding allowed, at least BITS_PER_WORD.
+	 * @param pool, the ForkJoinPool to code blocks on, or null to code on the calling thread.
+	 * @param tables, the shared code tables, or null if there are none.
+	 */
+	public HuffmanCodec(int blockSize, int maxCodeLength, ForkJoinPool pool, CodeTableRegistry tables) {
+		compressor = new BlockCompressor(blockSize, maxCodeLength, pool);
+		this.pool = pool;
+		this.tables = tables;
+	}
+
+	/**
+	 * Finds the most bytes compressing the given number of bytes can produce.
+	 * @param length, the number of bytes to compress.
+	 * @return the most bytes of compressed data.
+	 */
+	public long maxCompressedLength(long length) {
+		return compressor.maxCompressedLength(length);
+	}
+
+	/**
+	 * Compresses the remaining bytes of one buffer into another. The bytes are read
+	 * in place and src's position is moved to its limit. The compressed bytes are put
+	 * straight into dst at its position, which is moved past them.
+	 * @param src, the buffer being compressed.
+	 * @param dst, the buffer to put the compressed bytes in. A buffer with at least
+	 * <code>maxCompressedLength(src.remaining())</code> bytes remaining always has room.
+	 * @return the number of bytes put in dst.
+	 * @throws java.nio.BufferOverflowException if dst runs out of room.
+	 */
+	public int compress(ByteBuffer src, ByteBuffer dst) {
+		int start = dst.position();
+		compressor.compress(src, dst);
+		return dst.position() - start;
+	}
+
+	/**
+	 * Uncompresses the remaining bytes of one buffer into another. The uncompressed
+	 * bytes are put at dst's position, which is moved past them.
+	 * @param src, the buffer holding one compressed file.
+	 * @param dst, the buffer to put the uncompressed bytes in.
+	 * @return the number of bytes put in dst.
+	 * @throws IOException if src is not a well formed compressed file.
+	 * @throws java.nio.BufferOverflowException if dst runs out of room.
+	 */
+	public int decompress(ByteBuffer src, ByteBuffer dst) throws IOException {
+		return (int) decompress(new BitInputStream(src), new BitOutputStream(dst));
+	}
+
+	/**
+	 * Compresses everything read from one channel to another. Neither channel is closed.
+	 * <br>pre: neither channel is a SelectableChannel in non-blocking mode.
+	 * @param in, the channel being compressed.
+	 * @param out, the channel to write the compressed bytes to.
+	 * @return the number of bytes written.
+	 * @throws IOException if an error occurs while reading or writing.
+	 */
+	public long compress(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		checkBlocking(in);
+		checkBlocking(out);
+		return compressor.compress(new ChannelInput(in), new ChannelOutput(out)) / BITS_PER_WORD;
+	}
+
+	/**
+	 * Uncompresses everything read from one channel to another. Neither channel is closed.
+	 * <br>pre: neither channel is a SelectableChannel in non-blocking mode.
+	 * @param in, the channel holding one compressed file.
+	 * @param out, the channel to write the uncompressed bytes to.
+	 * @return the number of bytes written.
+	 * @throws IOException if an error occurs while reading or writing, or the file is
+	 * not well formed.
+	 */
+	public long decompress(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		checkBlocking(in);
+		checkBlocking(out);
+		return decompress(new BitInputStream(new ChannelInput(in)), new BitOutputStream(new ChannelOutput(out)));
+	}
+
+	/**
+	 * Helper method for the channel methods that rejects a non-blocking channel, as
+	 * a read or write that moves no bytes would leave the streams nothing to do but spin.
+	 * @param channel, the channel to check.
+	 */
+	private static void checkBlocking(Channel channel) {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalArgumentException("Violation of precondition: HuffmanCodec."
+					+ " The channel must be in blocking mode.");
+		}
+	}
+
+	/**
+	 * Helper method for the decompress methods that uncompresses a file of any format.
+	 * @param bis, the BitInputStream holding the compressed file.
+	 * @param bos, the BitOutputStream to write the uncompressed bytes to.
+	 * @return the number of bytes written.
+	 * @throws IOException if the file is not well formed.
+	 */
+	private long decompress(BitInputStream bis, BitOutputStream bos) throws IOException {
+		int magic = bis.readBits(BITS_PER_INT);
+		if (magic != MAGIC_NUMBER) {
+			throw new IOException("This data cannot be uncompressed as it does not"
+					+ " start with the huff magic number.");
+		}
+		int headerFormat = bis.readBits(BITS_PER_INT);
+		if (headerFormat == STORE_BLOCKS || headerFormat == STORE_SEEKABLE_BLOCKS) {
+			long bytesWritten = new BlockDecompressor(bis, bos, pool).writeOutBytes();
+			bos.close();
+			return bytesWritten;
+		}
+		HuffmanDecompressor hd = new HuffmanDecompressor(bis, bos, tables);
+		hd.writeOutBits(headerFormat);
+		return hd.getSize() / BITS_PER_WORD;
+	}
+
+	/**
+	 * An InputStream that reads from a blocking channel without closing it.
+	 */
+	private static class ChannelInput extends InputStream {
+
+		private final ReadableByteChannel channel;
+
+		private ChannelInput(ReadableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			return channel.read(ByteBuffer.wrap(b, off, len));
+		}
+	}
+
+	/**
+	 * An OutputStream that writes to a blocking channel without closing it.
+	 */
+	private static class ChannelOutput extends OutputStream {
+
+		private final WritableByteChannel channel;
+
+		private ChannelOutput(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
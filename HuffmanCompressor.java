@@ -1,15 +1,27 @@
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.TreeMap;
 
+/**
+ * A plan for compressing one file: its counts, its codings and the header format to
+ * write them in. A HuffmanCompressor is never changed once it is made, so it can be
+ * shared and used to compress the same file on any number of threads at once.
+ */
 public class HuffmanCompressor implements IHuffConstants{
 
-	private BitInputStream bis;
-	private HuffmanTree ht;
-	private int headerFormat;
-	private TreeMap<Integer, Integer> freqMap;
-	private int originalSize;
-	private int compressedSize;
+	//the number of bits of the width of each compact count
+	private static final int BITS_PER_COUNT_WIDTH = 6;
+	
+	private final HuffmanCodeBuilder tree;
+	private final HuffmanEncoder encoder;
+	private final int[] codeLengths;
+	private final int maxCodeLength;
+	private final long lengthLimitCost;
+	private final int headerFormat;
+	private final long[] freqs;
+	private final int symbolWidth;
+	private final ContextCode contexts;
+	private final CodeTable sharedTable;
+	private final long originalSize;
+	private final long compressedSize;
 	
 	/**
 	 * Creates a new HuffmanCompressor object from the given BitInputStream and header format.
@@ -18,164 +30,532 @@ public class HuffmanCompressor implements IHuffConstants{
 	 * @throws IOException
 	 */
 	public HuffmanCompressor(BitInputStream newStream, int hf) throws IOException {
-		originalSize = 0;
-		bis = newStream;
+		this(newStream, hf, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH);
+	}
+	
+	/**
+	 * Creates a new HuffmanCompressor object from the given BitInputStream and header format,
+	 * limiting the length of the codings if the header format allows it.
+	 * @param newStream, the BitInputStream containing the file to compress.
+	 * @param hf, the header format for the file.
+	 * @param maxLength, the longest coding allowed for header formats that store canonical codes.
+	 * @throws IOException
+	 */
+	public HuffmanCompressor(BitInputStream newStream, int hf, int maxLength) throws IOException {
+		this(getHistogram(newStream), hf, maxLength);
+	}
+	
+	/**
+	 * Creates a new HuffmanCompressor object from the counts of an already counted file.
+	 * @param histogram, the counts of every value of the file to compress.
+	 * @param hf, the header format for the file.
+	 * @param maxLength, the longest coding allowed for header formats that store canonical codes.
+	 * @throws IllegalArgumentException if the header format is STORE_COUNTS and a count
+	 * does not fit in 31 bits, use STORE_VARINT_COUNTS for such files.
+	 */
+	public HuffmanCompressor(Histogram histogram, int hf, int maxLength) {
+		maxCodeLength = maxLength;
 		headerFormat = hf;
+		symbolWidth = BITS_PER_WORD;
+		contexts = null;
+		sharedTable = null;
+		//updates the original size of the file counter
+		originalSize = histogram.size() * BITS_PER_WORD;
 		//holds each values frequency
-		freqMap = getFreqMap();
-		//sorts each value frequency combo into a queue
-		HuffPriorityQueue<TreeNode> freqQueue = getFreqQueue(freqMap);
-		ht = new HuffmanTree(freqQueue);
-				compressedSize = compSize();
+		freqs = getFreqs(histogram);
+		if (headerFormat == STORE_COUNTS) {
+			for (int i = 0; i < ALPH_SIZE; i++) {
+				if (freqs[i] > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Violation of precondition: HuffmanCompressor."
+							+ " Counts above " + Integer.MAX_VALUE + " need STORE_VARINT_COUNTS.");
+				}
+			}
+		}
+		//builds the huffman tree in arrays
+		tree = new HuffmanCodeBuilder(ALPH_SIZE + 1);
+		tree.build(freqs);
+		long[] treeCodes = new long[ALPH_SIZE + 1];
+		int[] treeLengths = new int[ALPH_SIZE + 1];
+		tree.fillCodes(treeCodes, treeLengths);
+		if (headerFormat == STORE_CANONICAL) {
+			//only the coding lengths are stored, so the codings are canonical
+			//and their lengths can be limited
+			codeLengths = LengthLimitedCode.lengths(freqs, maxCodeLength);
+			//finds how many more bits the limited codings use than the tree's
+			lengthLimitCost = LengthLimitedCode.dataBits(freqs, codeLengths)
+					- LengthLimitedCode.dataBits(freqs, treeLengths);
+			CanonicalCode.ensureCoded(codeLengths, PSEUDO_EOF);
+			encoder = new HuffmanEncoder(CanonicalCode.codesFromLengths(codeLengths), codeLengths);
+		} else {
+			//encodes with the codings of the tree
+			codeLengths = treeLengths;
+			lengthLimitCost = 0;
+			encoder = new HuffmanEncoder(treeCodes, treeLengths);
+		}
+		compressedSize = compSize();
 	}
 	
 	/**
-	 * Helper method for HuffmanCompressor that puts every value and its frequency into a map.
-	 * @return a map of every value and its frequency.
-	 * @throws IOException
+	 * Creates a new HuffmanCompressor object that codes a file as symbols of the width it
+	 * was counted in, with the STORE_SYMBOLS header format. Only the symbols that occur
+	 * are stored in the header, so a wide alphabet that is mostly unused stays cheap.
+	 * @param histogram, the counts of every symbol of the file to compress, counted with
+	 * a width between MIN_SYMBOL_WIDTH and MAX_SYMBOL_WIDTH.
+	 * @param maxLength, the longest coding allowed, raised to the symbol width if it is
+	 * shorter so every symbol can have a coding.
 	 */
-	private TreeMap<Integer, Integer> getFreqMap() throws IOException{
-		TreeMap<Integer, Integer> freqMap = new TreeMap<>();
-		int currentWord = bis.readBits(BITS_PER_WORD);
-		//traverses entire file
-		while (currentWord != -1) {
-			//updates the original size of the file counter
-			originalSize += 8;
-			//updates frequencies of already present values
-			if (freqMap.containsKey(currentWord)) {
-				freqMap.put(currentWord, freqMap.get(currentWord) + 1);
-			} else { //adds new values to map
-				freqMap.put(currentWord, 1);
+	public HuffmanCompressor(SymbolHistogram histogram, int maxLength) {
+		symbolWidth = histogram.width();
+		if (symbolWidth < MIN_SYMBOL_WIDTH || symbolWidth > MAX_SYMBOL_WIDTH) {
+			throw new IllegalArgumentException("Violation of precondition: HuffmanCompressor."
+					+ " Symbol width must be between " + MIN_SYMBOL_WIDTH + " and " + MAX_SYMBOL_WIDTH);
+		}
+		maxCodeLength = Math.max(maxLength, symbolWidth);
+		headerFormat = STORE_SYMBOLS;
+		contexts = null;
+		sharedTable = null;
+		originalSize = histogram.size() * BITS_PER_WORD;
+		//no PSEUDO_EOF is needed as the header holds the size
+		freqs = histogram.counts();
+		tree = null;
+		int used = 0;
+		int firstSymbol = -1;
+		for (int symbol = freqs.length - 1; symbol >= 0; symbol--) {
+			if (freqs[symbol] > 0) {
+				used++;
+				firstSymbol = symbol;
 			}
-			//gets next value
-			currentWord = bis.readBits(BITS_PER_WORD);
 		}
-		freqMap.put(PSEUDO_EOF, 1);
-		bis.close();
-		return freqMap;
+		codeLengths = LengthLimitedCode.lengths(freqs, maxCodeLength);
+		if (used > 1) {
+			//finds how many more bits the limited codings use than a tree's
+			HuffmanCodeBuilder symbolTree = new HuffmanCodeBuilder(freqs.length);
+			symbolTree.build(freqs);
+			int[] treeLengths = new int[freqs.length];
+			symbolTree.fillCodes(new long[freqs.length], treeLengths);
+			lengthLimitCost = LengthLimitedCode.dataBits(freqs, codeLengths)
+					- LengthLimitedCode.dataBits(freqs, treeLengths);
+		} else {
+			lengthLimitCost = 0;
+			if (used == 1) {
+				CanonicalCode.ensureCoded(codeLengths, firstSymbol);
+			}
+		}
+		encoder = new HuffmanEncoder(CanonicalCode.codesFromLengths(codeLengths), codeLengths);
+		compressedSize = compSize();
 	}
 	
 	/**
-	 * Helper method for HuffmanCompressor that creates a TreeNode out
-	 * of every value and its frequency and then sorts the nodes into a queue.
-	 * @param freqMap, the map containing each value and its frequency.
-	 * @return a HuffPriorityQueue that contains sorted TreeNodes of
-	 * the values and their frequencies from this BitInputStream.
+	 * Creates a new HuffmanCompressor object that codes each value of a file with a code
+	 * table chosen by the value before it, with the STORE_CONTEXTS header format.
+	 * @param histogram, the counts of every value after every value of the file to compress.
+	 * @param maxLength, the longest coding allowed.
 	 */
-	private HuffPriorityQueue<TreeNode> getFreqQueue(TreeMap<Integer, Integer> freqMap) {
-		HuffPriorityQueue<TreeNode> freqQueue = new HuffPriorityQueue<>();
-		//traverses entire map
-		for (Integer value: freqMap.keySet()) {
-			//sorts new TreeNode into queue
-			TreeNode newNode = new TreeNode(value, freqMap.get(value));
-			freqQueue.enqueue(newNode);
+	public HuffmanCompressor(ContextHistogram histogram, int maxLength) {
+		maxCodeLength = maxLength;
+		headerFormat = STORE_CONTEXTS;
+		symbolWidth = BITS_PER_WORD;
+		originalSize = histogram.size() * BITS_PER_WORD;
+		//the codings are held by the tables of each context
+		contexts = new ContextCode(histogram, maxLength);
+		sharedTable = null;
+		lengthLimitCost = contexts.lengthLimitCost();
+		freqs = null;
+		tree = null;
+		codeLengths = null;
+		encoder = null;
+		compressedSize = compSize();
+	}
+	
+	/**
+	 * Creates a new HuffmanCompressor object that codes a file with a shared code table,
+	 * with the STORE_SHARED_TABLE header format. Only the table's id and checksum are
+	 * stored, so the table must be loaded wherever the file is uncompressed.
+	 * @param histogram, the counts of every value of the file to compress.
+	 * @param table, the shared table to code the file with.
+	 */
+	public HuffmanCompressor(Histogram histogram, CodeTable table) {
+		headerFormat = STORE_SHARED_TABLE;
+		symbolWidth = BITS_PER_WORD;
+		contexts = null;
+		sharedTable = table;
+		originalSize = histogram.size() * BITS_PER_WORD;
+		freqs = getFreqs(histogram);
+		tree = null;
+		//the codings were chosen when the table was trained
+		codeLengths = table.lengths();
+		int longest = 0;
+		for (int length: codeLengths) {
+			longest = Math.max(longest, length);
 		}
-		return freqQueue;
+		maxCodeLength = longest;
+		lengthLimitCost = 0;
+		encoder = table.encoder();
+		compressedSize = compSize();
+	}
+	
+	/**
+	 * Creates the HuffmanCompressor for the header format that makes the smallest file,
+	 * out of the formats that code a file with one code.
+	 * @param histogram, the counts of every value of the file to compress.
+	 * @param maxLength, the longest coding allowed for header formats that store canonical codes.
+	 * @return the HuffmanCompressor with the smallest compressed size.
+	 */
+	public static HuffmanCompressor cheapest(Histogram histogram, int maxLength) {
+		//counts of files over 2 GB may not fit in STORE_COUNTS
+		boolean countsFit = histogram.size() <= Integer.MAX_VALUE;
+		int[] formats = {STORE_COUNTS, STORE_VARINT_COUNTS, STORE_COMPACT_COUNTS,
+				STORE_TREE, STORE_COMPACT_TREE, STORE_CANONICAL};
+		HuffmanCompressor best = null;
+		for (int format: formats) {
+			if (format != STORE_COUNTS || countsFit) {
+				HuffmanCompressor candidate = new HuffmanCompressor(histogram, format, maxLength);
+				if (best == null || candidate.compressedSize() < best.compressedSize()) {
+					best = candidate;
+				}
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Helper method for HuffmanCompressor that counts every value of a file.
+	 * @param bis, the BitInputStream containing the file to count.
+	 * @return a Histogram of every value of the file.
+	 * @throws IOException
+	 */
+	private static Histogram getHistogram(BitInputStream bis) throws IOException {
+		//counts whole chunks of the file at a time
+		Histogram histogram = new Histogram();
+		histogram.add(bis);
+		bis.close();
+		return histogram;
+	}
+	
+	/**
+	 * Helper method for HuffmanCompressor that finds the frequency of every value.
+	 * @param histogram, the counts of every value of the file.
+	 * @return an array of the frequency of every value, indexed by value.
+	 */
+	private long[] getFreqs(Histogram histogram) {
+		long[] freqs = new long[ALPH_SIZE + 1];
+		System.arraycopy(histogram.counts(), 0, freqs, 0, ALPH_SIZE);
+		freqs[PSEUDO_EOF] = 1;
+		return freqs;
 	}
 	
 	/**
 	 * Finds and returns the original size of this file.
 	 * @return the original size of this file.
 	 */
-	public int originalSize() {
+	public long originalSize() {
 		return originalSize;
 	}
 	
 	/**
-	 * @return the HuffmanTree of this BitInputStream.
+	 * Finds the header format this HuffmanCompressor writes.
+	 * @return the header format.
+	 */
+	public int headerFormat() {
+		return headerFormat;
+	}
+	
+	/**
+	 * Finds how many more bits of data the length limited codings use than the
+	 * unlimited codings of the HuffmanTree would.
+	 * @return the number of extra bits, 0 if the codings are not limited.
 	 */
-	public HuffmanTree getTree() {
-		return ht;
+	public long lengthLimitCost() {
+		return lengthLimitCost;
 	}
 	
-	public void writeOutBits(BitInputStream newBis, BitOutputStream bos) throws IOException {
+	/**
+	 * Writes the compressed file. Nothing in this HuffmanCompressor is changed, so any
+	 * number of threads can write at once.
+	 * @param newBis, the BitInputStream containing the file to compress, closed when done.
+	 * @param bos, the BitOutputStream to write the compressed file to, closed when done.
+	 * @return the number of bits written.
+	 * @throws IOException
+	 */
+	public long writeOutBits(BitInputStream newBis, BitOutputStream bos) throws IOException {
 		//writes magic number
 		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
-		compressedSize += BITS_PER_INT;
-		//writes either counts or tree header
+		long bitsWritten = BITS_PER_INT;
+		//writes either counts, tree or canonical header
 		if (headerFormat == STORE_COUNTS) {			
-			countsHeader(bos);
+			bitsWritten += countsHeader(bos);
+		} else if (headerFormat == STORE_VARINT_COUNTS) {
+			bitsWritten += varIntCountsHeader(bos);
+		} else if (headerFormat == STORE_COMPACT_COUNTS) {
+			bitsWritten += compactCountsHeader(bos);
+		} else if (headerFormat == STORE_COMPACT_TREE) {
+			bitsWritten += compactTreeHeader(bos);
 		} else if (headerFormat == STORE_TREE) {
-			treeHeader(bos);
+			bitsWritten += treeHeader(bos);
+		} else if (headerFormat == STORE_CANONICAL) {
+			bitsWritten += canonicalHeader(bos);
+		} else if (headerFormat == STORE_SYMBOLS) {
+			bitsWritten += symbolsHeader(bos);
+		} else if (headerFormat == STORE_CONTEXTS) {
+			bitsWritten += contextsHeader(bos);
+		} else if (headerFormat == STORE_SHARED_TABLE) {
+			bitsWritten += sharedTableHeader(bos);
 		}
 		//writes data of file and peof
-		writeData(newBis, bos);
+		bitsWritten += writeData(newBis, bos);
 		bos.close();
 		newBis.close();
+		return bitsWritten;
 	}
 	
-	private void countsHeader(BitOutputStream bos) {
+	private int countsHeader(BitOutputStream bos) {
 		//writes counts header value
 		bos.writeBits(BITS_PER_INT, STORE_COUNTS);
-		compressedSize += BITS_PER_INT;
+		int bitsWritten = BITS_PER_INT;
 		//writes frequency of elements
 		for (int i = 0; i < ALPH_SIZE; i++) {
-			if (freqMap.containsKey(i)) {
-				bos.writeBits(BITS_PER_INT, freqMap.get(i));
-			} else {
-				bos.writeBits(BITS_PER_INT, 0);
+			bos.writeBits(BITS_PER_INT, (int) freqs[i]);
+			bitsWritten += BITS_PER_INT;
+		}
+		return bitsWritten;
+	}
+	
+	private int varIntCountsHeader(BitOutputStream bos) {
+		//writes varint counts header value
+		bos.writeBits(BITS_PER_INT, STORE_VARINT_COUNTS);
+		int bitsWritten = BITS_PER_INT;
+		//writes frequency of elements in as few bytes as each needs
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			bitsWritten += VarInt.write(bos, freqs[i]);
+		}
+		return bitsWritten;
+	}
+	
+	private int compactCountsHeader(BitOutputStream bos) {
+		//writes compact counts header value
+		bos.writeBits(BITS_PER_INT, STORE_COMPACT_COUNTS);
+		//writes which values occur
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			bos.writeBits(1, freqs[i] > 0 ? 1 : 0);
+		}
+		//writes the counts that occur with as many bits as the biggest needs
+		int width = countWidth();
+		bos.writeBits(BITS_PER_COUNT_WIDTH, width - 1);
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			if (freqs[i] > 0) {
+				bos.writeBits(width, freqs[i]);
 			}
-			compressedSize += BITS_PER_INT;
 		}
+		return (int) compactCountsSize();
+	}
+	
+	private int compactTreeHeader(BitOutputStream bos) {
+		//writes compact tree header value and where the peof leaf is
+		bos.writeBits(BITS_PER_INT, STORE_COMPACT_TREE);
+		int[] leafCount = new int[1];
+		bos.writeBits(BITS_PER_WORD + 1, leafIndex(tree.root(), PSEUDO_EOF, leafCount));
+		//writes tree
+		return BITS_PER_INT + BITS_PER_WORD + 1 + writeCompactTree(bos, tree.root());
 	}
 	
-	private void treeHeader(BitOutputStream bos) {
+	private int treeHeader(BitOutputStream bos) {
 		//writes tree header value
 		bos.writeBits(BITS_PER_INT, STORE_TREE);
-		compressedSize += BITS_PER_INT;
 		final int BITS_PER_VALUE = 9;
-		int treeSize = (ht.numLeafNodes() * BITS_PER_VALUE) + ht.size();
+		int treeSize = (tree.numLeafNodes() * BITS_PER_VALUE) + tree.size();
 		//writes tree size
 		bos.writeBits(BITS_PER_INT, treeSize);
-		compressedSize += BITS_PER_INT;
 		//writes tree
-		writeTree(bos, ht.getRoot());
+		return 2 * BITS_PER_INT + writeTree(bos, tree.root());
+	}
+	
+	private int canonicalHeader(BitOutputStream bos) {
+		//writes canonical header value
+		bos.writeBits(BITS_PER_INT, STORE_CANONICAL);
+		//writes the coding length of every value
+		return BITS_PER_INT + CanonicalCode.writeLengths(bos, codeLengths);
 	}
 	
-	private void writeTree(BitOutputStream bos, TreeNode tn) {
+	private long symbolsHeader(BitOutputStream bos) {
+		//writes symbols header value, symbol width and size in bytes
+		bos.writeBits(BITS_PER_INT, STORE_SYMBOLS);
+		bos.writeBits(BITS_PER_WORD, symbolWidth);
+		long bitsWritten = BITS_PER_INT + BITS_PER_WORD;
+		bitsWritten += VarInt.write(bos, originalSize / BITS_PER_WORD);
+		//writes the coding length of only the symbols that occur
+		return bitsWritten + CanonicalCode.writeSparseLengths(bos, codeLengths);
+	}
+	
+	private long contextsHeader(BitOutputStream bos) {
+		//writes contexts header value and size in bytes
+		bos.writeBits(BITS_PER_INT, STORE_CONTEXTS);
+		long bitsWritten = BITS_PER_INT + VarInt.write(bos, originalSize / BITS_PER_WORD);
+		//writes the code table of every context
+		return bitsWritten + contexts.write(bos);
+	}
+	
+	private int sharedTableHeader(BitOutputStream bos) {
+		//writes shared table header value, then the table's id and checksum
+		bos.writeBits(BITS_PER_INT, STORE_SHARED_TABLE);
+		int bitsWritten = BITS_PER_INT + VarInt.write(bos, sharedTable.id());
+		bos.writeBits(BITS_PER_INT, sharedTable.checksum());
+		return bitsWritten + BITS_PER_INT;
+	}
+	
+	private int writeTree(BitOutputStream bos, int node) {
 		//writes 1 and node value if a leaf
-		if (tn.isLeaf()) {
-			bos.writeBits(1, 1);
-			compressedSize += 1;
-			bos.writeBits(BITS_PER_WORD + 1, tn.getValue());
-			compressedSize += BITS_PER_WORD + 1;
+		if (tree.isLeaf(node)) {
+			bos.writeBits(BITS_PER_WORD + 2, (1 << (BITS_PER_WORD + 1)) | tree.getValue(node));
+			return BITS_PER_WORD + 2;
 		} else { //writes 0 and traverses rest of tree
 			bos.writeBits(1, 0);
-			compressedSize += 1;
-			writeTree(bos, tn.getLeft());
-			writeTree(bos, tn.getRight());
-		}
-	}
-	
-	private void writeData(BitInputStream newBis, BitOutputStream bos) throws IOException {
-		HashMap<Integer, String> codeMap = ht.newCodeMap();
-		int currentWord = newBis.readBits(BITS_PER_WORD);
-		//traverses entire file
-		while (currentWord != -1) {
-			String code = codeMap.get(currentWord);
-			//writes out each bit from new huffman encoding for each value
-			for (int i = 0; i < code.length(); i++) {
-				String subCode = code.substring(i, i + 1);
-				bos.writeBits(1, Integer.parseInt(subCode));
-				compressedSize++;
+			return 1 + writeTree(bos, tree.getLeft(node)) + writeTree(bos, tree.getRight(node));
+		}
+	}
+	
+	private int writeCompactTree(BitOutputStream bos, int node) {
+		//writes 1 and node value if a leaf, the peof leaf has no value
+		if (tree.isLeaf(node)) {
+			if (tree.getValue(node) == PSEUDO_EOF) {
+				bos.writeBits(1, 1);
+				return 1;
+			}
+			bos.writeBits(BITS_PER_WORD + 1, (1 << BITS_PER_WORD) | tree.getValue(node));
+			return BITS_PER_WORD + 1;
+		} else { //writes 0 and traverses rest of tree
+			bos.writeBits(1, 0);
+			return 1 + writeCompactTree(bos, tree.getLeft(node)) + writeCompactTree(bos, tree.getRight(node));
+		}
+	}
+	
+	/**
+	 * Finds the index of a value's leaf among the leaves of the tree in the order they
+	 * are written.
+	 * @param node, the node to search below.
+	 * @param value, the value to find.
+	 * @param leafCount, holds the number of leaves before node.
+	 * @return the index of the value's leaf, -1 if it is not below node.
+	 */
+	private int leafIndex(int node, int value, int[] leafCount) {
+		if (tree.isLeaf(node)) {
+			if (tree.getValue(node) == value) {
+				return leafCount[0];
 			}
-			currentWord = newBis.readBits(BITS_PER_WORD);
+			leafCount[0]++;
+			return -1;
 		}
-		//writes bits for huffman encoding for peof value
-		String peofCode = codeMap.get(PSEUDO_EOF);
-		for (int i = 0; i < peofCode.length(); i++) {
-			String subCode = peofCode.substring(i, i + 1);
-			bos.writeBits(1, Integer.parseInt(subCode));
-			compressedSize++;
+		int index = leafIndex(tree.getLeft(node), value, leafCount);
+		return index != -1 ? index : leafIndex(tree.getRight(node), value, leafCount);
+	}
+	
+	/**
+	 * Finds the number of bits needed for the biggest count.
+	 */
+	private int countWidth() {
+		long max = 1;
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			max = Math.max(max, freqs[i]);
 		}
+		return Long.SIZE - Long.numberOfLeadingZeros(max);
+	}
+	
+	/**
+	 * Finds the size of the compact counts header.
+	 */
+	private long compactCountsSize() {
+		long size = BITS_PER_INT + ALPH_SIZE + BITS_PER_COUNT_WIDTH;
+		int width = countWidth();
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			if (freqs[i] > 0) {
+				size += width;
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Helper method for writeOutBits that writes the codings of the data after the header.
+	 * @param newBis, the BitInputStream containing the file to compress.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 * @return the number of bits written.
+	 * @throws IOException if the file cannot be read or is shorter than the file counted.
+	 */
+	private long writeData(BitInputStream newBis, BitOutputStream bos) throws IOException {
+		if (headerFormat == STORE_SYMBOLS) {
+			return writeSymbols(newBis, bos);
+		} else if (headerFormat == STORE_CONTEXTS) {
+			return writeContexts(newBis, bos);
+		}
+		//writes the huffman encoding of each value and the peof value
+		return encoder.encodeAll(newBis, bos);
+	}
+	
+	/**
+	 * Helper method for writeOutBits that writes the coding of each whole symbol of the
+	 * file, then the bits left over that don't make a whole symbol as they are.
+	 * @param newBis, the BitInputStream containing the file to compress.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 * @return the number of bits written.
+	 * @throws IOException if the file is shorter than the file that was counted.
+	 */
+	private long writeSymbols(BitInputStream newBis, BitOutputStream bos) throws IOException {
+		long bitsWritten = 0;
+		//writes the huffman encoding of each whole symbol
+		long symbols = originalSize / symbolWidth;
+		for (long i = 0; i < symbols; i++) {
+			int symbol = newBis.readBits(symbolWidth);
+			if (symbol == -1) {
+				throw new IOException("The file is shorter than the file that was counted.");
+			}
+			encoder.encode(symbol, bos);
+			bitsWritten += encoder.codeLength(symbol);
+		}
+		//writes the bits that don't make a whole symbol as they are
+		int tailBits = (int) (originalSize % symbolWidth);
+		if (tailBits > 0) {
+			int tail = newBis.readBits(tailBits);
+			if (tail == -1) {
+				throw new IOException("The file is shorter than the file that was counted.");
+			}
+			bos.writeBits(tailBits, tail);
+		}
+		return bitsWritten + tailBits;
+	}
+	
+	/**
+	 * Helper method for writeOutBits that writes the coding of each value of the file
+	 * from the table of the value before it, the first from the table of 0.
+	 * @param newBis, the BitInputStream containing the file to compress.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 * @return the number of bits written.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private long writeContexts(BitInputStream newBis, BitOutputStream bos) throws IOException {
+		HuffmanEncoder[] encoders = contexts.encoders();
+		byte[] buffer = new byte[1 << 16];
+		long bitsWritten = 0;
+		int context = 0;
+		//writes the encoding of each value with the table of the value before it
+		int read = newBis.read(buffer, 0, buffer.length);
+		while (read != -1) {
+			for (int i = 0; i < read; i++) {
+				int value = buffer[i] & 0xff;
+				HuffmanEncoder contextEncoder = encoders[context];
+				contextEncoder.encode(value, bos);
+				bitsWritten += contextEncoder.codeLength(value);
+				context = value;
+			}
+			read = newBis.read(buffer, 0, buffer.length);
+		}
+		return bitsWritten;
 	}
 	
 	/**
 	 * Finds and returns the size of the compressed file.
 	 * @return the size of the compressed file.
 	 */
-	private int compSize() {
-		int comSize = 0;
+	private long compSize() {
+		long comSize = 0;
 		//for the magic number
 		comSize += BITS_PER_INT;
 		//for the count or tree header
@@ -183,20 +563,48 @@ public class HuffmanCompressor implements IHuffConstants{
 		if (headerFormat == STORE_COUNTS) {
 			//for the counts
 			comSize += BITS_PER_INT * ALPH_SIZE;
+		} else if (headerFormat == STORE_VARINT_COUNTS) {
+			//for the counts
+			for (int i = 0; i < ALPH_SIZE; i++) {
+				comSize += VarInt.size(freqs[i]);
+			}
+		} else if (headerFormat == STORE_COMPACT_COUNTS) {
+			//for the bitmap, count width and counts, less the header value counted above
+			comSize += compactCountsSize() - BITS_PER_INT;
+		} else if (headerFormat == STORE_COMPACT_TREE) {
+			//for the peof leaf index, a bit per node and a value per leaf but the peof's
+			comSize += BITS_PER_WORD + 1;
+			comSize += tree.size() + BITS_PER_WORD * (tree.numLeafNodes() - 1);
 		} else if (headerFormat == STORE_TREE) {
 			//for the tree size
 			comSize += BITS_PER_INT;
-			int treeSize = ht.size();
-			int numLeaves = ht.numLeafNodes();
+			int treeSize = tree.size();
+			int numLeaves = tree.numLeafNodes();
 			//for the leaf nodes
 			comSize += numLeaves;
 			comSize += (1 + BITS_PER_WORD) * numLeaves;
 			//for the internal nodes
 			comSize += treeSize - numLeaves;
+		} else if (headerFormat == STORE_CANONICAL) {
+			//for the coding lengths
+			comSize += CanonicalCode.lengthsSize(codeLengths);
+		} else if (headerFormat == STORE_SYMBOLS) {
+			//for the symbol width, the size and the coding lengths
+			comSize += BITS_PER_WORD + VarInt.size(originalSize / BITS_PER_WORD);
+			comSize += CanonicalCode.sparseLengthsSize(codeLengths);
+			//for the bits that don't make a whole symbol
+			comSize += originalSize % symbolWidth;
+		} else if (headerFormat == STORE_CONTEXTS) {
+			//for the size, the tables and the data coded with them
+			comSize += VarInt.size(originalSize / BITS_PER_WORD);
+			comSize += contexts.headerSize();
+			return comSize + contexts.dataBits();
+		} else if (headerFormat == STORE_SHARED_TABLE) {
+			//for the table id and checksum
+			comSize += VarInt.size(sharedTable.id()) + BITS_PER_INT;
 		}
-		HashMap<Integer, String> codeMap = ht.newCodeMap();
-		for (Integer value: codeMap.keySet()) {
-			comSize += codeMap.get(value).length() * freqMap.get(value);
+		for (int value = 0; value < freqs.length; value++) {
+			comSize += encoder.codeLength(value) * freqs[value];
 		}
 		return comSize;
 	}
@@ -204,7 +612,7 @@ public class HuffmanCompressor implements IHuffConstants{
 	/**
 	 * @return the size of the compressed file.
 	 */
-	public int compressedSize() {
+	public long compressedSize() {
 		return compressedSize;
 	}
 	
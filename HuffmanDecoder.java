@@ -0,0 +1,251 @@
+import java.io.IOException;
+
+public class HuffmanDecoder implements IHuffConstants {
+
+	//the most bits looked up at once in one table
+	private static final int TABLE_BITS = 11;
+	//entries for values hold the value above the number of bits its coding uses
+	private static final int VALUE_SHIFT = 8;
+	private static final int LENGTH_MASK = 0xff;
+	//entries for longer codings hold the complement of the next table's offset and size
+	private static final int SIZE_BITS = 5;
+	private static final int SIZE_MASK = (1 << SIZE_BITS) - 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private int[] table;
+	private int tableSize;
+	private int rootBits;
+	private int singleValue;
+
+	/**
+	 * Creates a new HuffmanDecoder for the codings of the given tree.
+	 * @param ht, the HuffmanTree containing the codings for each value.
+	 */
+	public HuffmanDecoder(HuffmanTree ht) {
+		singleValue = -1;
+		if (ht.getRoot().isLeaf()) {
+			//a tree of one value uses no bits for it
+			singleValue = ht.getRoot().getValue();
+		} else {
+			long[] codes = new long[ALPH_SIZE + 1];
+			int[] lengths = new int[ALPH_SIZE + 1];
+			ht.fillCodes(codes, lengths);
+			buildTables(codes, lengths);
+		}
+	}
+
+	/**
+	 * Creates a new HuffmanDecoder for a code of a single value, which uses no bits.
+	 * @param onlyValue, the only value of the code.
+	 */
+	public HuffmanDecoder(int onlyValue) {
+		singleValue = onlyValue;
+	}
+
+	/**
+	 * Creates a new HuffmanDecoder for the given codings.
+	 * pre: at least one coding is at least 1 bit long and no coding starts another.
+	 * @param codes, the bits of the coding for each value, stored in the rightmost bits.
+	 * @param lengths, the number of bits in the coding for each value, 0 if it has none.
+	 */
+	public HuffmanDecoder(long[] codes, int[] lengths) {
+		singleValue = -1;
+		buildTables(codes, lengths);
+	}
+
+	/**
+	 * Helper method for the constructors that flattens the codings into lookup tables.
+	 * The root table is indexed by the next bits of input and gives the value and coding
+	 * length directly for every coding that fits in it. Longer codings lead to a smaller
+	 * table indexed by the bits after those, and so on.
+	 * @param codes, the bits of the coding for each value.
+	 * @param lengths, the number of bits in the coding for each value.
+	 */
+	private void buildTables(long[] codes, int[] lengths) {
+		int[] values = new int[lengths.length];
+		int count = 0;
+		for (int value = 0; value < lengths.length; value++) {
+			if (lengths[value] > 0) {
+				values[count++] = value;
+			}
+		}
+		if (count == 0) {
+			throw new IllegalArgumentException("Violation of precondition: HuffmanDecoder."
+					+ " At least one coding must have bits.");
+		}
+		table = new int[1 << TABLE_BITS];
+		tableSize = 0;
+		rootBits = ~buildTable(codes, lengths, values, count, 0) & SIZE_MASK;
+	}
+
+	/**
+	 * Helper method for buildTables that adds a table for the given values, which all
+	 * share the same first bits, and the tables for any longer codings below it.
+	 * @param codes, the bits of the coding for each value.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @param values, the values the new table decodes.
+	 * @param count, the number of values in the values array.
+	 * @param used, the number of bits of each coding already looked up by earlier tables.
+	 * @return the entry that leads to the new table.
+	 */
+	private int buildTable(long[] codes, int[] lengths, int[] values, int count, int used) {
+		int maxBits = 0;
+		for (int i = 0; i < count; i++) {
+			maxBits = Math.max(maxBits, lengths[values[i]] - used);
+		}
+		int bits = Math.min(maxBits, TABLE_BITS);
+		int offset = allocate(1 << bits);
+		//values whose codings don't fit in this table
+		int[] longer = new int[count];
+		int numLonger = 0;
+		for (int i = 0; i < count; i++) {
+			int value = values[i];
+			int remaining = lengths[value] - used;
+			if (remaining <= bits) {
+				//fills every entry that starts with the rest of this coding
+				int first = (int) (rest(codes[value], remaining) << (bits - remaining));
+				int entry = (value << VALUE_SHIFT) | remaining;
+				for (int j = 0; j < 1 << (bits - remaining); j++) {
+					if (table[offset + first + j] != 0) {
+						throw overlap();
+					}
+					table[offset + first + j] = entry;
+				}
+			} else {
+				longer[numLonger++] = value;
+			}
+		}
+		//groups the longer codings by their index in this table
+		while (numLonger > 0) {
+			int index = index(codes, lengths, longer[0], used, bits);
+			int[] group = new int[numLonger];
+			int groupSize = 0;
+			int kept = 0;
+			for (int i = 0; i < numLonger; i++) {
+				if (index(codes, lengths, longer[i], used, bits) == index) {
+					group[groupSize++] = longer[i];
+				} else {
+					longer[kept++] = longer[i];
+				}
+			}
+			numLonger = kept;
+			if (table[offset + index] != 0) {
+				throw overlap();
+			}
+			int entry = buildTable(codes, lengths, group, groupSize, used + bits);
+			table[offset + index] = entry;
+		}
+		return ~((offset << SIZE_BITS) | bits);
+	}
+
+	/**
+	 * Finds the index of the given value's coding in a table that looks up the given bits.
+	 */
+	private int index(long[] codes, int[] lengths, int value, int used, int bits) {
+		int remaining = lengths[value] - used;
+		return (int) (rest(codes[value], remaining) >>> (remaining - bits));
+	}
+
+	/**
+	 * Helper method for buildTable that makes the exception for codings that overlap,
+	 * which the lengths of a prefix code never give.
+	 */
+	private static IllegalArgumentException overlap() {
+		return new IllegalArgumentException("Violation of precondition: HuffmanDecoder."
+				+ " The codings must be a prefix code, no coding can start another.");
+	}
+
+	/**
+	 * Finds the rightmost bits of a coding.
+	 */
+	private long rest(long code, int bits) {
+		return bits == Long.SIZE ? code : code & ((1L << bits) - 1);
+	}
+
+	/**
+	 * Reserves space for a new table, growing the table array as needed.
+	 * @param size, the number of entries in the new table.
+	 * @return the offset of the new table.
+	 */
+	private int allocate(int size) {
+		if (tableSize + size > table.length) {
+			int[] bigger = new int[Math.max(table.length * 2, tableSize + size)];
+			System.arraycopy(table, 0, bigger, 0, tableSize);
+			table = bigger;
+		}
+		int offset = tableSize;
+		tableSize += size;
+		return offset;
+	}
+
+	/**
+	 * Reads the coding of a single value from the given BitInputStream.
+	 * @param bis, the BitInputStream to read the coding from.
+	 * @return the value of the coding read.
+	 * @throws IOException if the input runs out or the bits don't match a coding.
+	 */
+	public int decode(BitInputStream bis) throws IOException {
+		if (singleValue != -1) {
+			return singleValue;
+		}
+		int offset = 0;
+		int bits = rootBits;
+		while (true) {
+			int entry = table[offset + bis.peekBits(bits)];
+			if (entry > 0) {
+				//found the value, consume only the bits of its coding
+				bis.skipBits(entry & LENGTH_MASK);
+				return entry >>> VALUE_SHIFT;
+			} else if (entry == 0) {
+				throw new IOException("Error reading compressed file. \n"
+						+ "bits do not match any Huffman coding.");
+			}
+			//moves on to the table for longer codings
+			bis.skipBits(bits);
+			entry = ~entry;
+			offset = entry >>> SIZE_BITS;
+			bits = entry & SIZE_MASK;
+		}
+	}
+
+	/**
+	 * Decodes a known number of values from the given BitInputStream into an array.
+	 * @param bis, the BitInputStream containing the codings.
+	 * @param data, the array to store each value in as a byte.
+	 * @param offset, the index to store the first value at.
+	 * @param length, the number of values to decode.
+	 * @throws IOException if the input runs out or the bits don't match a coding.
+	 */
+	public void decode(BitInputStream bis, byte[] data, int offset, int length) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			data[i] = (byte) decode(bis);
+		}
+	}
+
+	/**
+	 * Decodes values from the given BitInputStream until the PSEUDO_EOF value, writing
+	 * each value as a byte to the given BitOutputStream.
+	 * @param bis, the BitInputStream containing the codings.
+	 * @param bos, the BitOutputStream to write the values to.
+	 * @return the number of values written.
+	 * @throws IOException if the input runs out or the bits don't match a coding.
+	 */
+	public long decodeAll(BitInputStream bis, BitOutputStream bos) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count = 0;
+		long total = 0;
+		int value = decode(bis);
+		//stops running if peof value has been found
+		while (value != PSEUDO_EOF) {
+			buffer[count++] = (byte) value;
+			if (count == buffer.length) {
+				bos.writeBytes(buffer, 0, count);
+				total += count;
+				count = 0;
+			}
+			value = decode(bis);
+		}
+		bos.writeBytes(buffer, 0, count);
+		return total + count;
+	}
+}
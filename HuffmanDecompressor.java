@@ -1,10 +1,12 @@
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 public class HuffmanDecompressor implements IHuffConstants{
 	
 	private BitInputStream bis;
 	private BitOutputStream bos;
-	private int size;
+	private long size;
+	private CodeTableRegistry tables;
 	
 	/**
 	 * Creates a new HuffmanDecompressor object from the given BitInputStream and BitOutputStream.
@@ -12,9 +14,22 @@ public class HuffmanDecompressor implements IHuffConstants{
 	 * @param outputStream, the BitOutputStream to write the uncompressed information to.
 	 */
 	public HuffmanDecompressor (BitInputStream inputStream, BitOutputStream outputStream) {
+		this(inputStream, outputStream, null);
+	}
+	
+	/**
+	 * Creates a new HuffmanDecompressor object that can uncompress files coded with the
+	 * shared code tables of the given registry.
+	 * @param inputStream, the BitInputStream containing the compressed file.
+	 * @param outputStream, the BitOutputStream to write the uncompressed information to.
+	 * @param codeTables, the shared code tables, or null if there are none.
+	 */
+	public HuffmanDecompressor (BitInputStream inputStream, BitOutputStream outputStream,
+			CodeTableRegistry codeTables) {
 		bis = inputStream;
 		bos = outputStream;
 		size = 0;
+		tables = codeTables;
 	}
 	
 	/**
@@ -35,121 +50,390 @@ public class HuffmanDecompressor implements IHuffConstants{
 	 */
 	public void writeOutBits() throws IOException {
 		//finds the header type
-		int headerType = bis.readBits(BITS_PER_INT);
-		HuffPriorityQueue<TreeNode> hq = new HuffPriorityQueue<>();
+		writeOutBits(bis.readBits(BITS_PER_INT));
+	}
+	
+	/**
+	 * Uncompresses the bits of the compressed file using the given header format,
+	 * which has already been read from the file.
+	 * @param headerType, the header format of the file.
+	 * @throws IOException
+	 */
+	public void writeOutBits(int headerType) throws IOException {
+		if (headerType == STORE_BLOCKS || headerType == STORE_SEEKABLE_BLOCKS) {
+			//each block has its own codings, so blocks are uncompressed on every core
+			//and the index after the end block of a seekable file is not needed
+			BlockDecompressor blocks = new BlockDecompressor(bis, bos, ForkJoinPool.commonPool());
+			size += blocks.writeOutBytes() * BITS_PER_WORD;
+			bis.close();
+			bos.close();
+			return;
+		}
+		if (headerType == STORE_ADAPTIVE) {
+			//the codings are rebuilt as the values are read
+			adaptive();
+			bis.close();
+			bos.close();
+			return;
+		}
+		if (headerType == STORE_SYMBOLS || headerType == STORE_CONTEXTS) {
+			//symbols are not bytes, so are written bit by bit, and contexts
+			//switch decoders for every value
+			if (headerType == STORE_SYMBOLS) {
+				symbolsHeader();
+			} else {
+				contextsHeader();
+			}
+			bis.close();
+			bos.close();
+			return;
+		}
+		HuffmanDecoder decoder;
 		if (headerType == STORE_COUNTS) {
-			//creates a queue based on the counts header
-			hq = countsHeader();
+			//creates a tree based on the counts header
+			decoder = countsHeader(false);
+		} else if (headerType == STORE_VARINT_COUNTS) {
+			//creates a tree based on the variable length counts header
+			decoder = countsHeader(true);
+		} else if (headerType == STORE_COMPACT_COUNTS) {
+			//creates a tree based on the counts of the values that occur
+			decoder = compactCountsHeader();
 		} else if (headerType == STORE_TREE) {
-			//creates a queue based on the tree header
-			hq = treeHeader();
+			//reads the codings from the tree header
+			decoder = treeHeader();
+		} else if (headerType == STORE_COMPACT_TREE) {
+			//reads the codings from the compact tree header
+			decoder = compactTreeHeader();
+		} else if (headerType == STORE_CANONICAL) {
+			//creates the codings from the lengths in the canonical header
+			decoder = canonicalHeader();
+		} else if (headerType == STORE_SHARED_TABLE) {
+			//uses the cached decoder of the shared table named in the header
+			decoder = sharedTableHeader();
 		} else {
 			throw new IOException("This file cannot be uncompressed as this file"
 					+ " contains an unsuported header format.");
 		}
-		HuffmanTree ht = new HuffmanTree(hq);
 		//writes the uncompressed information
-		writeBits(ht);
+		writeBits(decoder);
 		bis.close();
 		bos.close();
 	}
 	
 	/**
 	 * Helper method for writeOutBits that writes out the uncompressed information
-	 * using the given Huffman Tree.
-	 * @param ht, the huffman tree that contains the values of the information.
+	 * using the given HuffmanDecoder.
+	 * @param decoder, the decoder that contains the codings of the information.
 	 * @throws IOException
 	 */
-	private void writeBits(HuffmanTree ht) throws IOException {
-		boolean foundPeof = false;
-		//stops running if peof value has been found
-		while(!foundPeof) {
-			TreeNode tn = ht.getRoot();
-			//stops running when a leaf is found
-			while (!tn.isLeaf()) {
-				int nextBit = bis.readBits(1);
-				if (nextBit == 0) {
-					//traverse left down the tree if at a 0
-					tn = tn.getLeft();
-				} else if (nextBit == 1){
-					//traverse right down the tree if at a 1
-					tn = tn.getRight();
-				} else {
-					throw new IOException("Error reading compressed file. \n" + 
-							"unexpected end of input. No PSEUDO_EOF value.");
-				}
+	private void writeBits(HuffmanDecoder decoder) throws IOException {
+		//decodes a whole value per table lookup
+		size += decoder.decodeAll(bis, bos) * BITS_PER_WORD;
+	}
+	
+	/**
+	 * Helper method for writeOutBits that reads the symbol width, size and coding
+	 * lengths of the symbols method and writes out the uncompressed information.
+	 * @throws IOException if the header is bad or the codings run out.
+	 */
+	private void symbolsHeader() throws IOException {
+		int width = bis.readBits(BITS_PER_WORD);
+		if (width < MIN_SYMBOL_WIDTH || width > MAX_SYMBOL_WIDTH) {
+			throw new IOException("Format of file is bad, symbol width must be between "
+					+ MIN_SYMBOL_WIDTH + " and " + MAX_SYMBOL_WIDTH + ".");
+		}
+		long bits = VarInt.read(bis) * BITS_PER_WORD;
+		int[] lengths = CanonicalCode.readSparseLengths(bis, 1 << width);
+		long symbols = bits / width;
+		if (symbols > 0) {
+			if (!hasCoding(lengths)) {
+				throw new IOException("Format of file is bad, no symbol has a coding.");
 			}
-			//if current value is the peof value
-			if (tn.getValue() == PSEUDO_EOF) {
-				foundPeof = true;
-			} else {
-				//writes uncompressed data for current value
-				bos.writeBits(BITS_PER_WORD, tn.getValue());
-				size += BITS_PER_WORD;
+			HuffmanDecoder decoder = new HuffmanDecoder(CanonicalCode.codesFromLengths(lengths), lengths);
+			for (long i = 0; i < symbols; i++) {
+				bos.writeBits(width, decoder.decode(bis));
 			}
 		}
+		//copies the bits that don't make a whole symbol
+		int tailBits = (int) (bits % width);
+		if (tailBits > 0) {
+			int tail = bis.readBits(tailBits);
+			if (tail == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			bos.writeBits(tailBits, tail);
+		}
+		size += bits;
+	}
+	
+	/**
+	 * Helper method for writeOutBits that reads the size and code tables of the
+	 * contexts method and writes out the uncompressed information, decoding each
+	 * value with the table of the value before it.
+	 * @throws IOException if the header is bad or the codings run out.
+	 */
+	private void contextsHeader() throws IOException {
+		long bytes = VarInt.read(bis);
+		HuffmanDecoder[] decoders = ContextCode.read(bis).decoders();
+		byte[] buffer = new byte[1 << 16];
+		int count = 0;
+		int context = 0;
+		for (long i = 0; i < bytes; i++) {
+			HuffmanDecoder decoder = decoders[context];
+			if (decoder == null) {
+				throw new IOException("Format of file is bad, a context has no codings.");
+			}
+			context = decoder.decode(bis);
+			buffer[count++] = (byte) context;
+			if (count == buffer.length) {
+				bos.writeBytes(buffer, 0, count);
+				count = 0;
+			}
+		}
+		bos.writeBytes(buffer, 0, count);
+		size += bytes * BITS_PER_WORD;
 	}
 	
 	/**
-	 * Helper method writeOutBits that creates a HuffPriorityQueue
-	 * containing every value and its frequency using the counts method.
-	 * @return a HuffPriorityQueue containing the values of this file and their frequencies.
+	 * Helper method for writeOutBits that writes out the uncompressed information
+	 * of the adaptive method, which has no header.
+	 * @throws IOException if the codings are bad or run out.
+	 */
+	private void adaptive() throws IOException {
+		AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(bis, true);
+		byte[] buffer = new byte[1 << 16];
+		int read = in.read(buffer, 0, buffer.length);
+		while (read != -1) {
+			bos.writeBytes(buffer, 0, read);
+			size += (long) read * BITS_PER_WORD;
+			read = in.read(buffer, 0, buffer.length);
+		}
+	}
+	
+	/**
+	 * Finds if any value has a coding.
+	 */
+	private static boolean hasCoding(int[] lengths) {
+		for (int length: lengths) {
+			if (length > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Helper method writeOutBits that finds the HuffmanDecoder of the shared
+	 * code table named by the id and checksum of the shared table method.
+	 * @return the HuffmanDecoder of the shared table.
+	 * @throws IOException if the table has not been loaded or is a different table.
+	 */
+	private HuffmanDecoder sharedTableHeader() throws IOException {
+		long id = VarInt.read(bis);
+		int checksum = bis.readBits(BITS_PER_INT);
+		if (id > Integer.MAX_VALUE) {
+			throw new IOException("Format of file is bad, table id is too big.");
+		}
+		if (tables == null) {
+			throw new IOException("This file cannot be uncompressed as it needs the shared"
+					+ " code table " + id + " and no tables have been loaded.");
+		}
+		return tables.get((int) id, checksum).decoder();
+	}
+	
+	/**
+	 * Helper method writeOutBits that creates a HuffmanDecoder from the
+	 * coding lengths of the canonical method.
+	 * @return a HuffmanDecoder for the canonical codings of this file.
+	 * @throws IOException
+	 */
+	private HuffmanDecoder canonicalHeader() throws IOException {
+		int[] lengths = CanonicalCode.readLengths(bis, ALPH_SIZE + 1);
+		return new HuffmanDecoder(CanonicalCode.codesFromLengths(lengths), lengths);
+	}
+	
+	/**
+	 * Helper method writeOutBits that creates a HuffmanDecoder from the
+	 * frequency of every value using the counts method.
+	 * @param varInt, true if the counts are written with VarInt, false if they are 32 bit ints.
+	 * @return a HuffmanDecoder for the codings of this file.
 	 * @throws IOException
 	 */
-	private HuffPriorityQueue<TreeNode> countsHeader() throws IOException {
-		HuffPriorityQueue<TreeNode> hq = new HuffPriorityQueue<>();
+	private HuffmanDecoder countsHeader(boolean varInt) throws IOException {
+		long[] freqs = new long[ALPH_SIZE + 1];
 		//runs for every ASCII value
 		for (int i = 0; i < ALPH_SIZE; i++) {
-			int freq = bis.readBits(BITS_PER_INT);
-			//only adds values with frequencies higher than 0
+			long freq = varInt ? VarInt.read(bis) : bis.readBits(BITS_PER_INT);
+			//no count is negative, so -1 means the header ran out of bits
+			if (freq < 0) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			//only values with frequencies higher than 0 are in the tree
 			if (freq > 0) {
-				TreeNode tn = new TreeNode(i, freq);
-				hq.enqueue(tn);
+				freqs[i] = freq;
 			}
 		}
-		//adds the peof value to the queue
-		TreeNode tn = new TreeNode(PSEUDO_EOF, 1);
-		hq.enqueue(tn);
-		return hq;
+		return countsDecoder(freqs);
 	}
 	
 	/**
-	 * Helper method writeOutBits that creates a HuffPriorityQueue
-	 * containing every value and its frequency using the tree method.
-	 * @return
+	 * Helper method writeOutBits that creates a HuffmanDecoder from the
+	 * frequency of every value that occurs using the compact counts method.
+	 * @return a HuffmanDecoder for the codings of this file.
 	 * @throws IOException
 	 */
-	private HuffPriorityQueue<TreeNode> treeHeader() throws IOException {
+	private HuffmanDecoder compactCountsHeader() throws IOException {
+		//reads which values occur
+		boolean[] occurs = new boolean[ALPH_SIZE];
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			occurs[i] = bis.readBits(1) == 1;
+		}
+		final int BITS_PER_COUNT_WIDTH = 6;
+		int width = bis.readBits(BITS_PER_COUNT_WIDTH) + 1;
+		if (width <= 0) {
+			throw new IOException("Format of file is bad, ran out of bits.");
+		}
+		long[] freqs = new long[ALPH_SIZE + 1];
+		for (int i = 0; i < ALPH_SIZE; i++) {
+			if (occurs[i]) {
+				//counts are read in two parts as readBits reads at most 32 bits
+				int high = width > BITS_PER_INT ? bis.readBits(width - BITS_PER_INT) : 0;
+				int low = bis.readBits(Math.min(width, BITS_PER_INT));
+				freqs[i] = ((long) high << BITS_PER_INT) | (low & 0xffffffffL);
+				if (freqs[i] <= 0) {
+					throw new IOException("Format of file is bad, count is not positive.");
+				}
+			}
+		}
+		return countsDecoder(freqs);
+	}
+	
+	/**
+	 * Helper method for the counts headers that creates a HuffmanDecoder from the
+	 * frequency of every value.
+	 * @param freqs, the frequency of every value, with room for the peof value.
+	 * @return a HuffmanDecoder for the codings of this file.
+	 */
+	private HuffmanDecoder countsDecoder(long[] freqs) {
+		//adds the peof value
+		freqs[PSEUDO_EOF] = 1;
+		//builds the same tree the compressor built
+		HuffmanCodeBuilder tree = new HuffmanCodeBuilder(ALPH_SIZE + 1);
+		tree.build(freqs);
+		if (tree.isLeaf(tree.root())) {
+			return new HuffmanDecoder(tree.getValue(tree.root()));
+		}
+		long[] codes = new long[ALPH_SIZE + 1];
+		int[] lengths = new int[ALPH_SIZE + 1];
+		tree.fillCodes(codes, lengths);
+		return new HuffmanDecoder(codes, lengths);
+	}
+	
+	/**
+	 * Helper method writeOutBits that creates a HuffmanDecoder from the
+	 * codings of every value using the tree method.
+	 * @return a HuffmanDecoder for the codings of this file.
+	 * @throws IOException
+	 */
+	private HuffmanDecoder treeHeader() throws IOException {
 		//to read over the size of tree
 		bis.readBits(BITS_PER_INT);
-		TreeNode rootNode = new TreeNode(-1, -1);
-		//builds an entire huffman tree from the given data and adds it to the queue.
-		rootNode = treeHeaderHelp(rootNode);
-		HuffPriorityQueue<TreeNode> hq = new HuffPriorityQueue<>();
-		hq.enqueue(rootNode);
-		return hq;
+		final int BITS_PER_VALUE = 9;
+		long[] codes = new long[1 << BITS_PER_VALUE];
+		int[] lengths = new int[1 << BITS_PER_VALUE];
+		//reads the coding of every leaf of the tree
+		int rootValue = treeHeaderHelp(codes, lengths, 0, 0);
+		if (rootValue != -1) {
+			//a tree that is a single leaf
+			return new HuffmanDecoder(rootValue);
+		}
+		return new HuffmanDecoder(codes, lengths);
+	}
+	
+	/**
+	 * Helper method writeOutBits that creates a HuffmanDecoder from the
+	 * codings of every value using the compact tree method.
+	 * @return a HuffmanDecoder for the codings of this file.
+	 * @throws IOException
+	 */
+	private HuffmanDecoder compactTreeHeader() throws IOException {
+		//reads where the peof leaf is
+		int eofLeaf = bis.readBits(BITS_PER_WORD + 1);
+		long[] codes = new long[ALPH_SIZE + 1];
+		int[] lengths = new int[ALPH_SIZE + 1];
+		//reads the coding of every leaf of the tree
+		int rootValue = compactTreeHelp(codes, lengths, 0, 0, eofLeaf, new int[1]);
+		if (rootValue != -1) {
+			//a tree that is a single leaf
+			return new HuffmanDecoder(rootValue);
+		}
+		return new HuffmanDecoder(codes, lengths);
 	}
 	
 	/**
-	 * Helper method for treeHeader that builds a huffman tree on a singular TreeNode.
-	 * @param tn, the current node of this tree.
-	 * @return a TreeNode that contains the entire huffman tree for this file.
+	 * Helper method for compactTreeHeader that reads the codings of every leaf below a node.
+	 * @param codes, the array of codings being filled.
+	 * @param lengths, the array of coding lengths being filled.
+	 * @param code, the bits of the coding for the current node.
+	 * @param length, the number of bits in the coding for the current node.
+	 * @param eofLeaf, the index of the peof leaf among the leaves.
+	 * @param leafCount, holds the number of leaves read so far.
+	 * @return the value of the current node if it is a leaf, -1 otherwise.
 	 * @throws IOException
 	 */
-	private TreeNode treeHeaderHelp(TreeNode tn) throws IOException {
+	private int compactTreeHelp(long[] codes, int[] lengths, long code, int length,
+			int eofLeaf, int[] leafCount) throws IOException {
 		int nextBit = bis.readBits(1);
-		if (nextBit == 0) {
-			//if next bit is a 0, add an internal node and continue traversing the tree
-			TreeNode internalNode = new TreeNode(-1, -1);
-			internalNode.setLeft(treeHeaderHelp(internalNode));
-			internalNode.setRight(treeHeaderHelp(internalNode));
-			return internalNode;
+		if (nextBit == 0 && length < Long.SIZE) {
+			//if next bit is a 0, read the left and right subtrees of an internal node
+			compactTreeHelp(codes, lengths, code << 1, length + 1, eofLeaf, leafCount);
+			compactTreeHelp(codes, lengths, (code << 1) | 1, length + 1, eofLeaf, leafCount);
+			return -1;
 		} else if (nextBit == 1) {
-			//if the next bit is a 1, add a leaf node with the specified value
+			//if the next bit is a 1, store the coding of the leaf, whose value
+			//follows unless it is the peof leaf
+			int value = leafCount[0]++ == eofLeaf ? PSEUDO_EOF : bis.readBits(BITS_PER_WORD);
+			if (value == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			codes[value] = code;
+			lengths[value] = length;
+			return value;
+		} else {
+			//if there is an error in the file
+			throw new IOException("Format of file is bad, ran out of bits.");
+		}
+	}
+	
+	/**
+	 * Helper method for treeHeader that reads the codings of every leaf below a node.
+	 * @param codes, the array of codings being filled.
+	 * @param lengths, the array of coding lengths being filled.
+	 * @param code, the bits of the coding for the current node.
+	 * @param length, the number of bits in the coding for the current node.
+	 * @return the value of the current node if it is a leaf, -1 otherwise.
+	 * @throws IOException
+	 */
+	private int treeHeaderHelp(long[] codes, int[] lengths, long code, int length) throws IOException {
+		int nextBit = bis.readBits(1);
+		if (nextBit == 0 && length < Long.SIZE) {
+			//if next bit is a 0, read the left and right subtrees of an internal node
+			treeHeaderHelp(codes, lengths, code << 1, length + 1);
+			treeHeaderHelp(codes, lengths, (code << 1) | 1, length + 1);
+			return -1;
+		} else if (nextBit == 1) {
+			//if the next bit is a 1, store the coding of the leaf with the specified value
 			//and stop traversing the tree
 			final int BITS_PER_VALUE = 9;
-			TreeNode leafNode = new TreeNode(bis.readBits(BITS_PER_VALUE), -1);
-			return leafNode;
+			int value = bis.readBits(BITS_PER_VALUE);
+			if (value == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			} else if (value > PSEUDO_EOF) {
+				throw new IOException("Format of file is bad, value outside the alphabet.");
+			}
+			codes[value] = code;
+			lengths[value] = length;
+			return value;
 	    } else {
 	    	//if there is an error in the file
 	    	throw new IOException("Format of file is bad, ran out of bits.");
@@ -159,7 +443,7 @@ public class HuffmanDecompressor implements IHuffConstants{
 	/**
 	 * Finds and returns the size of the uncompressed file.
 	 */
-	public int getSize() {
+	public long getSize() {
 		return size;
 	}
 }
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class HuffmanEncoder implements IHuffConstants {
+
+	private final long[] codes;
+	private final int[] lengths;
+
+	/**
+	 * Creates a new HuffmanEncoder that writes the Huffman codings of the given tree.
+	 * The codings are flattened once into arrays indexed by value so no work besides
+	 * an array lookup is needed to encode a value.
+	 * @param ht, the HuffmanTree containing the codings for each value.
+	 */
+	public HuffmanEncoder(HuffmanTree ht) {
+		codes = new long[ALPH_SIZE + 1];
+		lengths = new int[ALPH_SIZE + 1];
+		ht.fillCodes(codes, lengths);
+	}
+
+	/**
+	 * Creates a new HuffmanEncoder that writes the given codings.
+	 * @param codes, the bits of the coding for each value, stored in the rightmost bits.
+	 * @param lengths, the number of bits in the coding for each value.
+	 */
+	public HuffmanEncoder(long[] codes, int[] lengths) {
+		this.codes = codes;
+		this.lengths = lengths;
+	}
+
+	/**
+	 * Writes the coding of a single value to the given BitOutputStream.
+	 * pre: the value must be in the tree this encoder was made from.
+	 * @param value, the value to encode.
+	 * @param bos, the BitOutputStream to write the coding to.
+	 */
+	public void encode(int value, BitOutputStream bos) {
+		bos.writeBits(lengths[value], codes[value]);
+	}
+
+	/**
+	 * Writes the codings of part of an array of bytes to the given BitOutputStream.
+	 * @param data, the array holding the bytes to encode.
+	 * @param offset, the index of the first byte to encode.
+	 * @param length, the number of bytes to encode.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 */
+	public void encode(byte[] data, int offset, int length, BitOutputStream bos) {
+		for (int i = offset; i < offset + length; i++) {
+			int value = data[i] & 0xff;
+			bos.writeBits(lengths[value], codes[value]);
+		}
+	}
+
+	/**
+	 * Writes the codings of the remaining bytes of a buffer to the given BitOutputStream
+	 * without changing the buffer's position.
+	 * @param data, the buffer holding the bytes to encode.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 */
+	public void encode(ByteBuffer data, BitOutputStream bos) {
+		if (data.hasArray()) {
+			encode(data.array(), data.arrayOffset() + data.position(), data.remaining(), bos);
+			return;
+		}
+		for (int i = data.position(); i < data.limit(); i++) {
+			int value = data.get(i) & 0xff;
+			bos.writeBits(lengths[value], codes[value]);
+		}
+	}
+
+	/**
+	 * Encodes every value in the given BitInputStream followed by the PSEUDO_EOF value.
+	 * @param bis, the BitInputStream containing the values to encode.
+	 * @param bos, the BitOutputStream to write the codings to.
+	 * @return the number of bits written.
+	 * @throws IOException
+	 */
+	public long encodeAll(BitInputStream bis, BitOutputStream bos) throws IOException {
+		long bitsWritten = 0;
+		int currentWord = bis.readBits(BITS_PER_WORD);
+		//traverses entire file
+		while (currentWord != -1) {
+			encode(currentWord, bos);
+			bitsWritten += lengths[currentWord];
+			currentWord = bis.readBits(BITS_PER_WORD);
+		}
+		//writes the coding for the peof value
+		encode(PSEUDO_EOF, bos);
+		return bitsWritten + lengths[PSEUDO_EOF];
+	}
+
+	/**
+	 * Finds the number of bits in the coding of the given value.
+	 * @param value, the value to find the coding length of.
+	 * @return the number of bits in the coding, 0 if the value has no coding.
+	 */
+	public int codeLength(int value) {
+		return lengths[value];
+	}
+}
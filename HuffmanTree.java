@@ -76,6 +76,39 @@ public class HuffmanTree {
 		}
 	}
 	
+	/**
+	 * Fills the given arrays with the Huffman coding of each element of this tree, indexed
+	 * by value. Each coding is stored in the rightmost bits of its entry in codes, with the
+	 * first bit of the coding as the most significant of them.
+	 * pre: codes and lengths must be large enough to be indexed by every value of this tree.
+	 * @param codes, the array to fill with the bits of each coding.
+	 * @param lengths, the array to fill with the number of bits in each coding.
+	 */
+	public void fillCodes(long[] codes, int[] lengths) {
+		codesHelp(codes, lengths, 0, 0, root);
+	}
+	
+	/**
+	 * Helper method for fillCodes that adds the coding of every element below the given node.
+	 * @param codes, the array of codings being filled.
+	 * @param lengths, the array of coding lengths being filled.
+	 * @param code, the bits of the coding for the current node.
+	 * @param length, the number of bits in the coding for the current node.
+	 * @param node, the current node of this tree this iteration is at.
+	 */
+	private void codesHelp(long[] codes, int[] lengths, long code, int length, TreeNode node) {
+		//base case if at a leaf node, store the current coding
+		if (node.isLeaf()) {
+			codes[node.getValue()] = code;
+			lengths[node.getValue()] = length;
+		} else if (length == Long.SIZE) {
+			throw new IllegalStateException("Huffman coding longer than " + Long.SIZE + " bits.");
+		} else { // traverse the left and right subtrees of this node
+			codesHelp(codes, lengths, code << 1, length + 1, node.getLeft());
+			codesHelp(codes, lengths, (code << 1) | 1, length + 1, node.getRight());
+		}
+	}
+	
 	/**
 	 * Finds and returns the number of nodes in this tree.
 	 * @return the size of this tree.
@@ -60,4 +60,106 @@ public interface IHuffConstants {
      * besides Standard Count Format or Standard Tree Format.
      */      
     public static final int STORE_CUSTOM = MAGIC_NUMBER | 4;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the code values are canonical Huffman codes stored in the custom
+     * format slot. Only the code length of each of the <tt>ALPH_SIZE + 1</tt>
+     * values follows this constant, see <code>CanonicalCode</code>.
+     */
+    public static final int STORE_CANONICAL = STORE_CUSTOM;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the data is stored as a series of independent blocks, each with
+     * its own canonical Huffman code, see <code>BlockCompressor</code>.
+     */
+    public static final int STORE_BLOCKS = MAGIC_NUMBER | 8;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the data is stored as blocks like <code>STORE_BLOCKS</code>, followed
+     * by a <code>BlockIndex</code> of where each block starts so any range
+     * of the data can be uncompressed on its own.
+     */
+    public static final int STORE_SEEKABLE_BLOCKS = MAGIC_NUMBER | 16;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the code values are stored as the count of each of the
+     * <tt>ALPH_SIZE</tt> values like Standard Count Format, but each
+     * count is written in as few bytes as it needs, see <code>VarInt</code>,
+     * so counts of files bigger than 2 GB fit.
+     */
+    public static final int STORE_VARINT_COUNTS = MAGIC_NUMBER | 32;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the data is coded as symbols of <tt>MIN_SYMBOL_WIDTH</tt> to
+     * <tt>MAX_SYMBOL_WIDTH</tt> bits instead of <tt>BITS_PER_WORD</tt> bit
+     * values. The symbol width and the number of bytes follow this constant,
+     * then the code length of only the symbols that occur, see <code>CanonicalCode</code>.
+     */
+    public static final int STORE_SYMBOLS = MAGIC_NUMBER | 64;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * each value is coded with a code table chosen by the value before
+     * it, an order-1 context model. The number of bytes follows this
+     * constant, then the tables, see <code>ContextCode</code>.
+     */
+    public static final int STORE_CONTEXTS = MAGIC_NUMBER | 128;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the data is coded with an adaptive Huffman code that is updated
+     * after every value, so no header follows this constant and nothing
+     * is counted first, see <code>AdaptiveHuffmanTree</code>.
+     */
+    public static final int STORE_ADAPTIVE = MAGIC_NUMBER | 256;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the data is coded with a shared code table trained ahead of time.
+     * Only the table's id and checksum follow this constant, see
+     * <code>CodeTable</code>, so small files have almost no header.
+     */
+    public static final int STORE_SHARED_TABLE = MAGIC_NUMBER | 8192;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the code values are stored as counts like Standard Count Format, but
+     * only for the values that occur. A bitmap of <tt>ALPH_SIZE</tt> bits
+     * saying which values occur follows this constant, then the number of
+     * bits of each count less one in 6 bits, then the counts of the values
+     * that occur in that many bits each.
+     */
+    public static final int STORE_COMPACT_COUNTS = MAGIC_NUMBER | 1024;
+    
+    /**
+     * A value in files compressed with a HuffProcessor indicating
+     * the code values are stored as a tree like Standard Tree Format,
+     * but without the tree size and with <tt>BITS_PER_WORD</tt> bit leaf
+     * values. The index of the PSEUDO_EOF leaf among the leaves in 9 bits
+     * follows this constant, then the tree, where the PSEUDO_EOF leaf has
+     * no value.
+     */
+    public static final int STORE_COMPACT_TREE = MAGIC_NUMBER | 2048;
+    
+    /**
+     * A header format that is never written to a file. Compressing with it
+     * uses whichever of the header formats that code a file with one code
+     * makes the smallest file.
+     */
+    public static final int STORE_AUTO = MAGIC_NUMBER | 4096;
+    
+    /**
+     * The fewest bits in a symbol of a <tt>STORE_SYMBOLS</tt> file.
+     */
+    public static final int MIN_SYMBOL_WIDTH = 4;
+    
+    /**
+     * The most bits in a symbol of a <tt>STORE_SYMBOLS</tt> file.
+     */
+    public static final int MAX_SYMBOL_WIDTH = 16;
 }
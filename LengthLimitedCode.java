@@ -0,0 +1,112 @@
+/**
+ * Finds optimal Huffman coding lengths where no coding is longer than a given limit,
+ * using the package-merge algorithm. Limiting the coding length costs a little
+ * compression on very skewed inputs but keeps every coding short enough to be written
+ * in one step and decoded with at most two table lookups.
+ */
+public class LengthLimitedCode {
+
+	/**
+	 * The coding length limit used when none is given.
+	 */
+	public static final int DEFAULT_MAX_CODE_LENGTH = 16;
+
+	private LengthLimitedCode() {
+	}
+
+	/**
+	 * Finds the coding lengths of the length limited Huffman code for the given frequencies.
+	 * pre: 2^maxLength must be at least the number of values with a frequency above 0.
+	 * @param freqs, the frequency of each value, 0 for values that get no coding.
+	 * @param maxLength, the longest coding allowed.
+	 * @return the number of bits in the coding for each value. A single value with a
+	 * frequency above 0 gets a coding of no bits, like the only leaf of a HuffmanTree.
+	 */
+	public static int[] lengths(long[] freqs, int maxLength) {
+		int[] lengths = new int[freqs.length];
+		int n = 0;
+		for (long freq: freqs) {
+			if (freq > 0) {
+				n++;
+			}
+		}
+		if (n < 2) {
+			return lengths;
+		}
+		if (maxLength < Integer.SIZE - 1 && (1 << maxLength) < n) {
+			throw new IllegalArgumentException("Violation of precondition: lengths. "
+					+ n + " values cannot have codings of at most " + maxLength + " bits.");
+		}
+		//sorts the values with a frequency by frequency, then by value
+		int[] sorted = new int[n];
+		n = 0;
+		for (int value = 0; value < freqs.length; value++) {
+			if (freqs[value] > 0) {
+				sorted[n++] = value;
+			}
+		}
+		HuffmanCodeBuilder.sortByFreq(sorted, n, freqs, new int[n]);
+		long[] leafWeights = new long[n];
+		for (int i = 0; i < n; i++) {
+			leafWeights[i] = freqs[sorted[i]];
+		}
+		maxLength = Math.min(maxLength, n - 1);
+		//isPackage[level][i] is true if item i of that level's list is a package
+		boolean[][] isPackage = new boolean[maxLength][];
+		long[] weights = leafWeights.clone();
+		int size = n;
+		isPackage[0] = new boolean[n];
+		for (int level = 1; level < maxLength; level++) {
+			//pairs up the previous list into packages and merges them with the leaves
+			int packages = size / 2;
+			long[] merged = new long[n + packages];
+			boolean[] flags = new boolean[n + packages];
+			int leaf = 0;
+			int pack = 0;
+			for (int i = 0; i < merged.length; i++) {
+				long packWeight = pack < packages ? weights[2 * pack] + weights[2 * pack + 1] : Long.MAX_VALUE;
+				if (leaf < n && leafWeights[leaf] <= packWeight) {
+					merged[i] = leafWeights[leaf++];
+				} else {
+					merged[i] = packWeight;
+					flags[i] = true;
+					pack++;
+				}
+			}
+			weights = merged;
+			size = merged.length;
+			isPackage[level] = flags;
+		}
+		//the first 2n - 2 items of the last list are chosen, each leaf in them adds a bit
+		int chosen = 2 * n - 2;
+		for (int level = maxLength - 1; level >= 0; level--) {
+			int leaves = 0;
+			for (int i = 0; i < chosen; i++) {
+				if (!isPackage[level][i]) {
+					leaves++;
+				}
+			}
+			//the leaves in a prefix of a list are always the smallest ones
+			for (int i = 0; i < leaves; i++) {
+				lengths[sorted[i]]++;
+			}
+			chosen = 2 * (chosen - leaves);
+		}
+		return lengths;
+	}
+
+	/**
+	 * Finds the number of bits the given codings use for data with the given frequencies.
+	 * @param freqs, the frequency of each value.
+	 * @param lengths, the number of bits in the coding for each value.
+	 * @return the total number of bits of data.
+	 */
+	public static long dataBits(long[] freqs, int[] lengths) {
+		long bits = 0;
+		for (int value = 0; value < freqs.length; value++) {
+			bits += freqs[value] * lengths[value];
+		}
+		return bits;
+	}
+
+}
@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through memory mapped windows instead of copying it onto the heap.
+ * Heap use does not depend on the size of the file, and files bigger than 2 GB are
+ * mapped one window at a time. Readers that can work on buffers, like Histogram,
+ * can take the mapped bytes in place with <code>readBuffer</code>.
+ */
+public class MappedInputStream extends InputStream {
+
+	//the largest part of a file mapped at once
+	private static final long MAX_MAP_SIZE = 1 << 30;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long windowSize;
+	private long windowStart;
+	private ByteBuffer window;
+
+	/**
+	 * Opens a file and maps its first window.
+	 * @param file, the file to read.
+	 * @throws IOException if the file cannot be opened or mapped.
+	 */
+	public MappedInputStream(File file) throws IOException {
+		this(file, MAX_MAP_SIZE);
+	}
+
+	/**
+	 * Opens a file and maps its first window, mapping at most a given number of bytes
+	 * at once, so small files can be read across several windows.
+	 * @param file, the file to read.
+	 * @param windowSize, the most bytes mapped at once, at least 1.
+	 * @throws IOException if the file cannot be opened or mapped.
+	 */
+	MappedInputStream(File file, long windowSize) throws IOException {
+		this.windowSize = windowSize;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			size = channel.size();
+			window = map(0);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of bytes in the file.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of bytes of the file not yet read.
+	 */
+	public long remaining() {
+		return size - windowStart - window.position();
+	}
+
+	public int read() throws IOException {
+		if (!nextWindow()) {
+			return -1;
+		}
+		return window.get() & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextWindow()) {
+			return -1;
+		}
+		int count = Math.min(len, window.remaining());
+		window.get(b, off, count);
+		return count;
+	}
+
+	/**
+	 * Reads bytes in place, without copying them.
+	 * @param maxLength, the most bytes to read.
+	 * @return a read only buffer of the next bytes of the file, at most maxLength long and
+	 * never crossing a window, or null if no bytes are left.
+	 * @throws IOException if the next window cannot be mapped.
+	 */
+	public ByteBuffer readBuffer(int maxLength) throws IOException {
+		if (!nextWindow()) {
+			return null;
+		}
+		int count = Math.min(maxLength, window.remaining());
+		ByteBuffer bytes = window.slice();
+		bytes.limit(count);
+		window.position(window.position() + count);
+		return bytes;
+	}
+
+	public long skip(long n) throws IOException {
+		long skipped = Math.max(0, Math.min(n, remaining()));
+		long position = windowStart + window.position() + skipped;
+		if (position - windowStart <= window.limit()) {
+			window.position((int) (position - windowStart));
+		} else {
+			window = map(position);
+		}
+		return skipped;
+	}
+
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, remaining());
+	}
+
+	/**
+	 * Closes the file. The mapped windows are released once they are no longer used.
+	 * @throws IOException if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Helper method that moves to the next window once the current one is read.
+	 * @return true if bytes are left to read, false at the end of the file.
+	 * @throws IOException if the next window cannot be mapped.
+	 */
+	private boolean nextWindow() throws IOException {
+		if (window.hasRemaining()) {
+			return true;
+		}
+		long next = windowStart + window.limit();
+		if (next >= size) {
+			return false;
+		}
+		window = map(next);
+		return true;
+	}
+
+	/**
+	 * Helper method that maps the window starting at a position of the file.
+	 * @param start, the position of the first byte of the window.
+	 * @return the mapped window.
+	 * @throws IOException if the window cannot be mapped.
+	 */
+	private MappedByteBuffer map(long start) throws IOException {
+		windowStart = start;
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+	}
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The timings HuffMark took of one file, or of every file together: how long each
+ * run of each step took, the bytes the steps processed and the size the file was
+ * compressed to. Reports throughput, per file latency percentiles and ratio as a
+ * line of text, a CSV row or a JSON object.
+ */
+public class MarkResult {
+
+	/**
+	 * The step that counts the file and plans its compression.
+	 */
+	public static final int PREPROCESS = 0;
+
+	/**
+	 * The step that compresses the file.
+	 */
+	public static final int COMPRESS = 1;
+
+	/**
+	 * The step that uncompresses the compressed file.
+	 */
+	public static final int UNCOMPRESS = 2;
+
+	/**
+	 * The names of the steps, by step.
+	 */
+	public static final String[] STEPS = {"preprocess", "compress", "uncompress"};
+
+	/**
+	 * The first line of a CSV report, naming the columns of csvRow.
+	 */
+	public static final String CSV_HEADER = "file,bytes,compressed_bytes,ratio,"
+			+ "preprocess_mb_s,preprocess_p50_ms,preprocess_p99_ms,"
+			+ "compress_mb_s,compress_p50_ms,compress_p99_ms,"
+			+ "uncompress_mb_s,uncompress_p50_ms,uncompress_p99_ms";
+
+	private final String name;
+	private final long bytes;
+	private long compressedBytes;
+	private long processedBytes;
+	private final long[][] nanos;
+	private int samples;
+
+	/**
+	 * Creates a MarkResult with room for the timings of a number of runs.
+	 * @param name, the name of the file, or of the total.
+	 * @param bytes, the number of bytes in the file.
+	 * @param runs, the number of runs that will be recorded, at least 0.
+	 */
+	public MarkResult(String name, long bytes, int runs) {
+		this.name = name;
+		this.bytes = bytes;
+		nanos = new long[STEPS.length][runs];
+	}
+
+	/**
+	 * Records the timings of one run of the file.
+	 * @param preprocessNanos, the time preprocess took.
+	 * @param compressNanos, the time compress took.
+	 * @param uncompressNanos, the time uncompress took.
+	 * @param compressed, the number of bytes the file was compressed to.
+	 */
+	public void record(long preprocessNanos, long compressNanos, long uncompressNanos, long compressed) {
+		nanos[PREPROCESS][samples] = preprocessNanos;
+		nanos[COMPRESS][samples] = compressNanos;
+		nanos[UNCOMPRESS][samples] = uncompressNanos;
+		samples++;
+		compressedBytes = compressed;
+		processedBytes += bytes;
+	}
+
+	/**
+	 * Makes the result of every file together. Throughput is over all the bytes
+	 * processed and latencies are over every run of every file.
+	 * @param name, the name of the total.
+	 * @param results, the results of each file.
+	 * @return the total.
+	 */
+	public static MarkResult total(String name, List<MarkResult> results) {
+		long bytes = 0;
+		int runs = 0;
+		for (MarkResult result: results) {
+			bytes += result.bytes;
+			runs += result.samples;
+		}
+		MarkResult total = new MarkResult(name, bytes, runs);
+		for (MarkResult result: results) {
+			for (int step = 0; step < STEPS.length; step++) {
+				System.arraycopy(result.nanos[step], 0, total.nanos[step], total.samples, result.samples);
+			}
+			total.samples += result.samples;
+			total.compressedBytes += result.compressedBytes;
+			total.processedBytes += result.processedBytes;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the name of the file, or of the total.
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return the number of bytes of the file.
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of bytes the file was compressed to.
+	 */
+	public long compressedBytes() {
+		return compressedBytes;
+	}
+
+	/**
+	 * @return the compressed size over the original size, 0 for an empty file.
+	 */
+	public double ratio() {
+		return bytes == 0 ? 0 : (double) compressedBytes / bytes;
+	}
+
+	/**
+	 * Finds the throughput of a step in millions of original bytes a second.
+	 * @param step, PREPROCESS, COMPRESS or UNCOMPRESS.
+	 * @return the throughput, 0 if nothing was timed.
+	 */
+	public double megabytesPerSecond(int step) {
+		long time = 0;
+		for (int i = 0; i < samples; i++) {
+			time += nanos[step][i];
+		}
+		return time == 0 ? 0 : processedBytes * 1e3 / time;
+	}
+
+	/**
+	 * Finds a percentile of the time one run of a step took, by nearest rank.
+	 * @param step, PREPROCESS, COMPRESS or UNCOMPRESS.
+	 * @param percent, the percentile, between 0 and 100.
+	 * @return the time in milliseconds, 0 if nothing was timed.
+	 */
+	public double percentileMillis(int step, double percent) {
+		if (samples == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(nanos[step], samples);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percent / 100 * samples);
+		return sorted[Math.max(rank, 1) - 1] / 1e6;
+	}
+
+	/**
+	 * @return a line of text with the size, ratio and timings of each step.
+	 */
+	public String textLine() {
+		StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s from\t %d to\t %d ratio %.3f",
+				name, bytes, compressedBytes, ratio()));
+		for (int step = 0; step < STEPS.length; step++) {
+			line.append(String.format(Locale.ROOT, "\t %s %.1f MB/s p50 %.3f ms p99 %.3f ms", STEPS[step],
+					megabytesPerSecond(step), percentileMillis(step, 50), percentileMillis(step, 99)));
+		}
+		return line.toString();
+	}
+
+	/**
+	 * @return a CSV row with the columns of CSV_HEADER.
+	 */
+	public String csvRow() {
+		StringBuilder row = new StringBuilder(csvField(name));
+		row.append(String.format(Locale.ROOT, ",%d,%d,%.6f", bytes, compressedBytes, ratio()));
+		for (int step = 0; step < STEPS.length; step++) {
+			row.append(String.format(Locale.ROOT, ",%.3f,%.6f,%.6f", megabytesPerSecond(step),
+					percentileMillis(step, 50), percentileMillis(step, 99)));
+		}
+		return row.toString();
+	}
+
+	/**
+	 * @return a JSON object with the size, ratio and an object of timings for each step.
+	 */
+	public String json() {
+		StringBuilder json = new StringBuilder("{\"file\": ").append(jsonString(name));
+		json.append(String.format(Locale.ROOT, ", \"bytes\": %d, \"compressedBytes\": %d, \"ratio\": %.6f",
+				bytes, compressedBytes, ratio()));
+		for (int step = 0; step < STEPS.length; step++) {
+			json.append(String.format(Locale.ROOT, ", \"%s\": {\"mbPerSec\": %.3f, \"p50Ms\": %.6f, \"p99Ms\": %.6f}",
+					STEPS[step], megabytesPerSecond(step), percentileMillis(step, 50),
+					percentileMillis(step, 99)));
+		}
+		return json.append("}").toString();
+	}
+
+	/**
+	 * Quotes text as a JSON string.
+	 * @param s, the text.
+	 * @return the JSON string.
+	 */
+	public static String jsonString(String s) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < ' ') {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Helper method for csvRow that quotes a field if it holds a comma, quote or line break.
+	 */
+	private static String csvField(String s) {
+		if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+			return s;
+		}
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+}
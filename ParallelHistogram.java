@@ -0,0 +1,131 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts byte values of large inputs on several threads. The input is split into
+ * segments that are counted into their own Histogram on a ForkJoinPool, and the
+ * Histograms are added together as the tasks finish. Inputs smaller than a threshold
+ * are counted on the calling thread.
+ */
+public class ParallelHistogram {
+
+	/**
+	 * The input size in bytes below which counting is done on one thread when no
+	 * threshold is given.
+	 */
+	public static final long DEFAULT_THRESHOLD = 16 << 20;
+
+	//the size of the pieces each task counts on its own
+	private static final int SEGMENT_SIZE = 4 << 20;
+	//the largest part of a file mapped at once
+	private static final long MAX_MAP_SIZE = 1 << 30;
+
+	private final ForkJoinPool pool;
+	private final long threshold;
+
+	/**
+	 * Creates a ParallelHistogram that counts on the common ForkJoinPool with the
+	 * default threshold.
+	 */
+	public ParallelHistogram() {
+		this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a ParallelHistogram that counts on the given pool.
+	 * @param pool, the ForkJoinPool to count on.
+	 * @param threshold, the input size in bytes below which counting is done on one thread.
+	 */
+	public ParallelHistogram(ForkJoinPool pool, long threshold) {
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Counts the remaining bytes of a buffer without changing its position.
+	 * @param data, the buffer holding the bytes to count.
+	 * @return a Histogram of the bytes.
+	 */
+	public Histogram count(ByteBuffer data) {
+		if (data.remaining() < threshold) {
+			Histogram histogram = new Histogram();
+			histogram.add(data);
+			return histogram;
+		}
+		return pool.invoke(new CountTask(data, data.position(), data.limit()));
+	}
+
+	/**
+	 * Counts the bytes of a file. Large files are mapped into memory and counted in place.
+	 * @param file, the file holding the bytes to count.
+	 * @return a Histogram of the bytes.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public Histogram count(File file) throws IOException {
+		Histogram histogram = new Histogram();
+		try (FileInputStream in = new FileInputStream(file)) {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size < threshold) {
+				histogram.add(in);
+				return histogram;
+			}
+			//maps the file in parts and counts them all in one go
+			ArrayList<CountTask> tasks = new ArrayList<>();
+			for (long start = 0; start < size; start += MAX_MAP_SIZE) {
+				long length = Math.min(MAX_MAP_SIZE, size - start);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+				tasks.add(new CountTask(buffer, 0, (int) length));
+			}
+			for (CountTask task: tasks) {
+				pool.execute(task);
+			}
+			for (CountTask task: tasks) {
+				histogram.add(task.join());
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * A task that counts a range of a buffer, splitting it in half until the
+	 * pieces are no bigger than a segment.
+	 */
+	private static class CountTask extends RecursiveTask<Histogram> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer data;
+		private final int start;
+		private final int end;
+
+		private CountTask(ByteBuffer data, int start, int end) {
+			this.data = data;
+			this.start = start;
+			this.end = end;
+		}
+
+		protected Histogram compute() {
+			if (end - start <= SEGMENT_SIZE) {
+				ByteBuffer segment = data.duplicate();
+				segment.limit(end).position(start);
+				Histogram histogram = new Histogram();
+				histogram.add(segment);
+				return histogram;
+			}
+			int mid = start + (end - start) / 2;
+			CountTask left = new CountTask(data, start, mid);
+			left.fork();
+			Histogram histogram = new CountTask(data, mid, end).compute();
+			histogram.add(left.join());
+			return histogram;
+		}
+	}
+}
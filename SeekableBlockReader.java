@@ -0,0 +1,132 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Uncompresses ranges of a STORE_SEEKABLE_BLOCKS file without reading the rest of it.
+ * The BlockIndex at the end of the file is read once, and each range uncompresses only
+ * the blocks that hold it. Ranges can be read from several threads at once.
+ */
+public class SeekableBlockReader implements Closeable, IHuffConstants {
+
+	private final FileChannel channel;
+	private final BlockIndex index;
+	private final int blockSize;
+
+	/**
+	 * Opens a STORE_SEEKABLE_BLOCKS file and reads its index.
+	 * @param file, the compressed file.
+	 * @throws IOException if the file cannot be read or is not a seekable block file.
+	 */
+	public SeekableBlockReader(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = BlockIndex.readFully(channel, 0, 3 * BITS_PER_INT / BITS_PER_WORD);
+			if (header.getInt() != MAGIC_NUMBER || header.getInt() != STORE_SEEKABLE_BLOCKS) {
+				throw new IOException("This file cannot be read in ranges as it is not a"
+						+ " seekable block file.");
+			}
+			blockSize = header.getInt();
+			index = BlockIndex.read(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of bytes of uncompressed data in the file.
+	 */
+	public long size() {
+		return index.dataSize();
+	}
+
+	/**
+	 * Uncompresses a range of the data, uncompressing only the blocks that hold it.
+	 * pre: 0 <= offset, 0 <= length, offset + length <= size()
+	 * @param offset, the offset in the uncompressed data of the first byte of the range.
+	 * @param length, the number of bytes in the range.
+	 * @return the bytes of the range.
+	 * @throws IOException if a block of the range is not well formed.
+	 */
+	public byte[] decompressRange(long offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > index.dataSize()) {
+			throw new IllegalArgumentException("Violation of precondition: decompressRange."
+					+ " Range must be within the " + index.dataSize() + " bytes of data.");
+		}
+		byte[] range = new byte[length];
+		int copied = 0;
+		int block = length == 0 ? index.size() : index.blockContaining(offset);
+		while (copied < length) {
+			byte[] data = readBlock(block);
+			//copies the part of the block inside the range
+			long start = offset + copied - index.dataOffset(block);
+			if (start < 0 || start >= data.length) {
+				throw new IOException("Format of file is bad, block index is out of order.");
+			}
+			int chunk = (int) Math.min(data.length - start, length - copied);
+			System.arraycopy(data, (int) start, range, copied, chunk);
+			copied += chunk;
+			block++;
+		}
+		return range;
+	}
+
+	/**
+	 * Uncompresses a range of the data of a STORE_SEEKABLE_BLOCKS file.
+	 * pre: 0 <= offset, 0 <= length, offset + length is at most the size of the data.
+	 * @param file, the compressed file.
+	 * @param offset, the offset in the uncompressed data of the first byte of the range.
+	 * @param length, the number of bytes in the range.
+	 * @return the bytes of the range.
+	 * @throws IOException if the file is not a well formed seekable block file.
+	 */
+	public static byte[] decompressRange(File file, long offset, int length) throws IOException {
+		try (SeekableBlockReader reader = new SeekableBlockReader(file)) {
+			return reader.decompressRange(offset, length);
+		}
+	}
+
+	/**
+	 * Helper method for decompressRange that reads and uncompresses one block. The
+	 * sizes in the block's frame must agree with the index and fit in the file before
+	 * anything is allocated for the payload.
+	 * @param block, the number of the block.
+	 * @return the bytes the block holds.
+	 * @throws IOException if the block is not well formed.
+	 */
+	private byte[] readBlock(int block) throws IOException {
+		long position = index.fileOffset(block);
+		//the block's bytes end where the next block's begin, its frame where the next frame begins
+		boolean last = block == index.size() - 1;
+		long dataEnd = last ? index.dataSize() : index.dataOffset(block + 1);
+		long fileEnd = last ? channel.size() : index.fileOffset(block + 1);
+		if (position < 0 || fileEnd > channel.size()
+				|| fileEnd - position < BlockCompressor.FRAME_HEADER_SIZE) {
+			throw new IOException("Format of file is bad, block index is out of range.");
+		}
+		ByteBuffer frame = BlockIndex.readFully(channel, position, BlockCompressor.FRAME_HEADER_SIZE);
+		int type = frame.get() & 0xff;
+		int length = frame.getInt();
+		int payloadSize = frame.getInt();
+		if (length < 1 || length > blockSize || length != dataEnd - index.dataOffset(block)
+				|| payloadSize < 0 || payloadSize > length
+				|| payloadSize > fileEnd - position - BlockCompressor.FRAME_HEADER_SIZE) {
+			throw new IOException("Format of file is bad, block sizes are out of range.");
+		}
+		ByteBuffer payload = BlockIndex.readFully(channel, position + BlockCompressor.FRAME_HEADER_SIZE,
+				payloadSize);
+		return BlockDecompressor.decodeBlock(type, payload.array(), 0, payloadSize, length);
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -1,12 +1,29 @@
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Compresses with plans that are never changed once made. <code>plan</code> counts
+ * a file and returns a HuffmanCompressor holding its counts and codings, which any
+ * number of threads can compress with at once through
+ * <code>compress(HuffmanCompressor, ...)</code>. The IHuffProcessor methods keep the
+ * plan of the last <code>preprocessCompress</code> in this processor for the
+ * following <code>compress</code>, so separate processors never share state, and
+ * the plan can be made on one thread and used on another.
+ */
 public class SimpleHuffProcessor implements IHuffProcessor {
 
     private IHuffViewer myViewer;
-    private static HuffmanCompressor hc;
+    private volatile Prepared myPrepared;
+    private int myMaxCodeLength = LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH;
+    private ParallelHistogram myCounter = new ParallelHistogram();
+    private int myBlockSize = BlockCompressor.DEFAULT_BLOCK_SIZE;
+    private int mySymbolWidth = MAX_SYMBOL_WIDTH;
+    private final CodeTableRegistry myCodeTables = new CodeTableRegistry();
+    private volatile CodeTable mySharedTable;
 
     /**
      * Preprocess data so that compression is possible ---
@@ -23,14 +40,240 @@ public class SimpleHuffProcessor implements IHuffProcessor {
      * ALL bits that will be written including the
      * magic number, the header format number, the header to
      * reproduce the tree, AND the actual data.
+     * With <code>STORE_BLOCKS</code>, <code>STORE_SEEKABLE_BLOCKS</code> or
+     * <code>STORE_ADAPTIVE</code> nothing is read, as these formats are compressed
+     * in a single pass by <code>compress</code>, and 0 is returned.
      * @throws IOException if an error occurs while reading from the input file.
      */
     public int preprocessCompress(InputStream in, int headerFormat) throws IOException {
-    	BitInputStream bis = new BitInputStream(in);
+        return toInt(preprocessCompressLarge(in, headerFormat));
+    }
+
+    /**
+     * Preprocess data so that compression is possible. Works the same as
+     * <code>preprocessCompress(InputStream, int)</code> but the number of bits
+     * saved is a long, so it is right for inputs bigger than 256 MB.
+     * @param in is the stream which could be subsequently compressed
+     * @param headerFormat a constant from IHuffProcessor that determines what kind of
+     * header to use
+     * @return number of bits saved by compression
+     * @throws IOException if an error occurs while reading from the input file.
+     */
+    public long preprocessCompressLarge(InputStream in, int headerFormat) throws IOException {
+    	if (isSinglePass(headerFormat)) {
+    		return keepSinglePass(headerFormat);
+    	}
+    	return keepPlan(plan(in, headerFormat));
+    }
+
+    /**
+     * Counts the data of a stream and makes a plan for compressing it. The stream
+     * is closed when done.
+     * @param in is the stream which could be subsequently compressed
+     * @param headerFormat is the header format to compress with, not a block format
+     * @return the plan, which can be shared by any number of threads
+     * @throws IOException if an error occurs while reading from the input file.
+     */
+    public HuffmanCompressor plan(InputStream in, int headerFormat) throws IOException {
+    	if (headerFormat == STORE_SYMBOLS) {
+    		//counts symbols of the chosen width instead of bytes
+    		SymbolHistogram symbols = new SymbolHistogram(mySymbolWidth);
+    		symbols.add(in);
+    		in.close();
+    		return checkPlan(new HuffmanCompressor(symbols, myMaxCodeLength));
+    	} else if (headerFormat == STORE_CONTEXTS) {
+    		//counts every byte by the byte before it
+    		ContextHistogram contexts = new ContextHistogram();
+    		contexts.add(in);
+    		in.close();
+    		return checkPlan(new HuffmanCompressor(contexts, myMaxCodeLength));
+    	}
+    	//counts the stream in chunks, or in place if it is mapped
+    	Histogram histogram = new Histogram();
+    	histogram.add(in);
+    	in.close();
+    	return plan(histogram, headerFormat);
+    }
+
+    /**
+     * Counts the data of a file and makes a plan for compressing it. Large files
+     * are mapped into memory and counted on several threads.
+     * @param file is the file which could be subsequently compressed
+     * @param headerFormat is the header format to compress with, not a block format
+     * @return the plan, which can be shared by any number of threads
+     * @throws IOException if an error occurs while reading from the input file.
+     */
+    public HuffmanCompressor plan(File file, int headerFormat) throws IOException {
+    	if (headerFormat == STORE_SYMBOLS || headerFormat == STORE_CONTEXTS) {
+    		return plan(new MappedInputStream(file), headerFormat);
+    	}
+    	return plan(myCounter.count(file), headerFormat);
+    }
+
+    /**
+     * Helper method for the plan methods that builds the codings for the counts.
+     */
+    private HuffmanCompressor plan(Histogram histogram, int headerFormat) {
+    	if (isSinglePass(headerFormat)) {
+    		throw new IllegalArgumentException("block and adaptive formats are compressed"
+    				+ " in a single pass without a plan");
+    	}
+    	if (headerFormat == STORE_SHARED_TABLE) {
+    		CodeTable table = mySharedTable;
+    		if (table == null) {
+    			throw new IllegalStateException("no shared code table has been set");
+    		}
+    		return new HuffmanCompressor(histogram, table);
+    	}
+    	if (headerFormat == STORE_AUTO) {
+    		//sizes the file with every single code header format
+    		HuffmanCompressor plan = HuffmanCompressor.cheapest(histogram, myMaxCodeLength);
+    		showString("Smallest header format is " + Integer.toHexString(plan.headerFormat()));
+    		return checkPlan(plan);
+    	}
     	//instantiates the compressor
-    	hc = new HuffmanCompressor(bis, headerFormat);
+    	return checkPlan(new HuffmanCompressor(histogram, headerFormat, myMaxCodeLength));
+    }
+
+    /**
+     * Helper method for the plan methods that reports what limiting the coding
+     * lengths of a plan costs.
+     * @param plan is the new plan
+     * @return the plan
+     */
+    private HuffmanCompressor checkPlan(HuffmanCompressor plan) {
+    	if (plan.lengthLimitCost() > 0) {
+    		showString("Limiting codings to " + myMaxCodeLength + " bits costs "
+    				+ plan.lengthLimitCost() + " bits");
+    	}
+    	return plan;
+    }
+
+    /**
+     * Helper method for the preprocessCompress methods that keeps a plan for the
+     * next call to compress.
+     * @param plan is the plan to keep
+     * @return number of bits saved by compressing with the plan
+     */
+    private long keepPlan(HuffmanCompressor plan) {
+    	myPrepared = new Prepared(plan.headerFormat(), plan);
     	//compares original size to compressed size
-        return hc.originalSize() - hc.compressedSize();
+    	return plan.originalSize() - plan.compressedSize();
+    }
+
+    /**
+     * Preprocess a file so that compression is possible. Works the same as
+     * <code>preprocessCompress(InputStream, int)</code> but large files are
+     * mapped into memory and counted on several threads.
+     * @param file is the file which could be subsequently compressed
+     * @param headerFormat a constant from IHuffProcessor that determines what kind of
+     * header to use
+     * @return number of bits saved by compression
+     * @throws IOException if an error occurs while reading from the input file.
+     */
+    public int preprocessCompress(File file, int headerFormat) throws IOException {
+        return toInt(preprocessCompressLarge(file, headerFormat));
+    }
+
+    /**
+     * Preprocess a file so that compression is possible. Works the same as
+     * <code>preprocessCompress(File, int)</code> but the number of bits saved
+     * is a long, so it is right for files bigger than 256 MB.
+     * @param file is the file which could be subsequently compressed
+     * @param headerFormat a constant from IHuffProcessor that determines what kind of
+     * header to use
+     * @return number of bits saved by compression
+     * @throws IOException if an error occurs while reading from the input file.
+     */
+    public long preprocessCompressLarge(File file, int headerFormat) throws IOException {
+    	if (isSinglePass(headerFormat)) {
+    		return keepSinglePass(headerFormat);
+    	}
+    	return keepPlan(plan(file, headerFormat));
+    }
+
+    /**
+     * Sets the size of file in bytes below which <code>preprocessCompress(File, int)</code>
+     * counts on one thread. Bigger files are counted in parallel on the common ForkJoinPool.
+     * @param threshold is the smallest file size counted in parallel
+     */
+    public void setParallelThreshold(long threshold) {
+        myCounter = new ParallelHistogram(ForkJoinPool.commonPool(), threshold);
+    }
+
+    /**
+     * Finds if a header format compresses in a single pass without a plan.
+     * @param headerFormat is the header format
+     * @return true if the format is <code>STORE_BLOCKS</code>, <code>STORE_SEEKABLE_BLOCKS</code>
+     * or <code>STORE_ADAPTIVE</code>
+     */
+    private boolean isSinglePass(int headerFormat) {
+        return headerFormat == STORE_BLOCKS || headerFormat == STORE_SEEKABLE_BLOCKS
+                || headerFormat == STORE_ADAPTIVE;
+    }
+
+    /**
+     * Helper method for the preprocessCompress methods that keeps a single pass
+     * format for the next call to compress and tells the viewer nothing is counted.
+     * @param headerFormat is the header format
+     * @return 0, as nothing is known about the data yet
+     */
+    private long keepSinglePass(int headerFormat) {
+        myPrepared = new Prepared(headerFormat, null);
+        if (headerFormat == STORE_ADAPTIVE) {
+            showString("Adaptive codings are updated in a single pass");
+        } else {
+            showString("Blocks of " + myBlockSize + " bytes are compressed in a single pass");
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the most bytes in one block when compressing with a block format.
+     * @param blockSize is the block size, between <code>BlockCompressor.MIN_BLOCK_SIZE</code>
+     * and <code>BlockCompressor.MAX_BLOCK_SIZE</code>
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < BlockCompressor.MIN_BLOCK_SIZE || blockSize > BlockCompressor.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("block size must be between "
+                    + BlockCompressor.MIN_BLOCK_SIZE + " and " + BlockCompressor.MAX_BLOCK_SIZE);
+        }
+        myBlockSize = blockSize;
+    }
+
+    /**
+     * Sets the number of bits in each symbol when compressing with
+     * <code>STORE_SYMBOLS</code>, for example 16 for UTF-16 text or 16 bit samples.
+     * @param width is the symbol width, between <code>MIN_SYMBOL_WIDTH</code>
+     * and <code>MAX_SYMBOL_WIDTH</code>
+     */
+    public void setSymbolWidth(int width) {
+        if (width < MIN_SYMBOL_WIDTH || width > MAX_SYMBOL_WIDTH) {
+            throw new IllegalArgumentException("symbol width must be between "
+                    + MIN_SYMBOL_WIDTH + " and " + MAX_SYMBOL_WIDTH);
+        }
+        mySymbolWidth = width;
+    }
+
+    /**
+     * Sets the shared code table to compress with when the header format is
+     * <code>STORE_SHARED_TABLE</code>, and adds it to the tables this processor
+     * can uncompress with.
+     * @param table is the shared table, for example one read with <code>CodeTable.read</code>
+     */
+    public void setSharedTable(CodeTable table) {
+        myCodeTables.register(table);
+        mySharedTable = table;
+    }
+
+    /**
+     * Finds the shared code tables this processor uncompresses
+     * <code>STORE_SHARED_TABLE</code> files with. Tables can be loaded into it
+     * without being used to compress.
+     * @return the registry of shared tables
+     */
+    public CodeTableRegistry getCodeTables() {
+        return myCodeTables;
     }
 
     /**
@@ -43,18 +286,77 @@ public class SimpleHuffProcessor implements IHuffProcessor {
      * for the compressed file (not a BitOutputStream)
      * @param force if this is true create the output file even if it is larger than the input file.
      * If this is false do not create the output file if it is larger than the input file.
+     * With a block or adaptive format the size is not known until the input has
+     * been read, so the output is always created. Blocks that don't get smaller are
+     * stored as they are, so a block file is never more than a few bytes per block
+     * bigger than the input.
      * @return the number of bits written.
      * @throws IOException if an error occurs while reading from the input file or
      * writing to the output file.
      */
     public int compress(InputStream in, OutputStream out, boolean force) throws IOException {
+        return toInt(compressLarge(in, out, force));
+    }
+
+    /**
+     * Compresses input to output. Works the same as
+     * <code>compress(InputStream, OutputStream, boolean)</code> but the number
+     * of bits written is a long, so it is right for inputs bigger than 256 MB.
+     * <br> pre: <code>preprocessCompress</code> must be called before this method
+     * @param in is the stream being compressed (NOT a BitInputStream)
+     * @param out is bound to a file/stream to which bits are written
+     * @param force if this is true create the output file even if it is larger than the input file.
+     * @return the number of bits written.
+     * @throws IOException if an error occurs while reading from the input file or
+     * writing to the output file.
+     */
+    public long compressLarge(InputStream in, OutputStream out, boolean force) throws IOException {
+    	//reads the format and plan once, as another thread may preprocess meanwhile
+    	Prepared prepared = myPrepared;
+    	if (prepared == null) {
+    		throw new IllegalStateException("preprocessCompress must be called before compress");
+    	}
+    	if (prepared.headerFormat == STORE_ADAPTIVE) {
+    		//codes each byte as it is read, updating the codings after it
+    		AdaptiveHuffmanOutputStream adaptive = new AdaptiveHuffmanOutputStream(out);
+    		byte[] buffer = new byte[1 << 16];
+    		int read = in.read(buffer, 0, buffer.length);
+    		while (read != -1) {
+    			adaptive.write(buffer, 0, read);
+    			read = in.read(buffer, 0, buffer.length);
+    		}
+    		in.close();
+    		adaptive.close();
+    		return adaptive.bitsWritten();
+    	} else if (isSinglePass(prepared.headerFormat)) {
+    		//reads and writes blocks in order while they are coded on every core
+    		BlockCompressor blocks = new BlockCompressor(myBlockSize, myMaxCodeLength,
+    				ForkJoinPool.commonPool(), prepared.headerFormat == STORE_SEEKABLE_BLOCKS);
+    		return blocks.compress(in, out);
+    	}
+    	return compress(prepared.plan, in, out, force);
+    }
+
+    /**
+     * Compresses input to output with a plan made by <code>plan</code> for the same
+     * data. Neither the plan nor this processor is changed, so any number of threads
+     * can compress with the same plan at once.
+     * @param plan is the plan made for the data being compressed
+     * @param in is the stream being compressed (NOT a BitInputStream)
+     * @param out is bound to a file/stream to which bits are written
+     * @param force if this is true create the output file even if it is larger than the input file.
+     * @return the number of bits written, 0 if the output was not created.
+     * @throws IOException if an error occurs while reading from the input file or
+     * writing to the output file.
+     */
+    public long compress(HuffmanCompressor plan, InputStream in, OutputStream out, boolean force)
+            throws IOException {
     	//ensures file should be compressed or not
-    	if (hc.originalSize() > hc.compressedSize() || force) {
+    	if (plan.originalSize() > plan.compressedSize() || force) {
     		BitInputStream bis = new BitInputStream(in);
         	BitOutputStream bos = new BitOutputStream(out);
         	//writes out compressed data
-    		hc.writeOutBits(bis, bos);
-    		return hc.compressedSize();
+    		return plan.writeOutBits(bis, bos);
     	}
     	return 0;
     }
@@ -69,10 +371,24 @@ public class SimpleHuffProcessor implements IHuffProcessor {
      * writing to the output file.
      */
     public int uncompress(InputStream in, OutputStream out) throws IOException {
+        return toInt(uncompressLarge(in, out));
+    }
+
+    /**
+     * Uncompress a previously compressed stream in, writing the uncompressed
+     * bits/data to out. Works the same as <code>uncompress</code> but the number
+     * of bits written is a long, so it is right for outputs bigger than 256 MB.
+     * @param in is the previously compressed data (not a BitInputStream)
+     * @param out is the uncompressed file/stream
+     * @return the number of bits written to the uncompressed file/stream
+     * @throws IOException if an error occurs while reading from the input file or
+     * writing to the output file.
+     */
+    public long uncompressLarge(InputStream in, OutputStream out) throws IOException {
     	BitInputStream bis = new BitInputStream(in);
     	BitOutputStream bos = new BitOutputStream(out);
     	//runs decompressor on the given compressed file
-    	HuffmanDecompressor hd = new HuffmanDecompressor(bis, bos);
+    	HuffmanDecompressor hd = new HuffmanDecompressor(bis, bos, myCodeTables);
     	//ensures given file is a huffman file
     	if (!hd.isHuffman()) {
     		throw new IOException("This file cannot be uncompressed as it is not a"
@@ -82,6 +398,29 @@ public class SimpleHuffProcessor implements IHuffProcessor {
     	return hd.getSize();
     }
 
+    /**
+     * Sets the longest coding allowed when compressing with a header format
+     * that stores canonical codes.
+     * @param maxLength is the longest coding allowed, between 9 and 64 bits
+     */
+    public void setMaxCodeLength(int maxLength) {
+        if (maxLength < BITS_PER_WORD + 1 || maxLength > CanonicalCode.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("code length limit must be between "
+                    + (BITS_PER_WORD + 1) + " and " + CanonicalCode.MAX_CODE_LENGTH);
+        }
+        myMaxCodeLength = maxLength;
+    }
+
+    /**
+     * Converts a number of bits for the int methods of IHuffProcessor, which
+     * cannot hold the sizes of inputs bigger than 256 MB.
+     * @param bits is the number of bits
+     * @return the number of bits, or the closest int to it if it does not fit
+     */
+    private static int toInt(long bits) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, bits));
+    }
+
     public void setViewer(IHuffViewer viewer) {
         myViewer = viewer;
     }
@@ -91,4 +430,21 @@ public class SimpleHuffProcessor implements IHuffProcessor {
             myViewer.update(s);
         }
     }
+
+    /**
+     * What the last <code>preprocessCompress</code> left for <code>compress</code>:
+     * the header format and, for a format that is not single pass, its plan. The
+     * two are published together, so a thread never sees a format with the plan
+     * of another.
+     */
+    private static class Prepared {
+
+        private final int headerFormat;
+        private final HuffmanCompressor plan;
+
+        private Prepared(int headerFormat, HuffmanCompressor plan) {
+            this.headerFormat = headerFormat;
+            this.plan = plan;
+        }
+    }
 }
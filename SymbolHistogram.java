@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts how many times each symbol of a given width occurs in some data, where the
+ * data is read as a string of bits and cut into symbols most significant bit first.
+ * Bits left over at the end that don't make a whole symbol are not counted.
+ */
+public class SymbolHistogram {
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private final int width;
+	private final long[] counts;
+	private long size;
+	//bits read but not yet counted, in the rightmost bits
+	private int pending;
+	private int pendingCount;
+
+	/**
+	 * Creates an empty SymbolHistogram.
+	 * @param width, the number of bits in each symbol, between 1 and 16.
+	 */
+	public SymbolHistogram(int width) {
+		if (width < 1 || width > Short.SIZE) {
+			throw new IllegalArgumentException("Violation of precondition: SymbolHistogram."
+					+ " Symbol width must be between 1 and " + Short.SIZE);
+		}
+		this.width = width;
+		counts = new long[1 << width];
+	}
+
+	/**
+	 * Counts the symbols in part of an array, after any bits left over from the part before.
+	 * @param data, the array holding the bytes to count.
+	 * @param offset, the index of the first byte to count.
+	 * @param length, the number of bytes to count.
+	 */
+	public void add(byte[] data, int offset, int length) {
+		int end = offset + length;
+		int i = offset;
+		if (width == Short.SIZE && pendingCount == 0) {
+			//whole pairs of bytes are symbols
+			for (; i + 1 < end; i += 2) {
+				counts[((data[i] & 0xff) << Byte.SIZE) | (data[i + 1] & 0xff)]++;
+			}
+		} else if (width == Byte.SIZE) {
+			for (; i < end; i++) {
+				counts[data[i] & 0xff]++;
+			}
+		}
+		int mask = (1 << width) - 1;
+		for (; i < end; i++) {
+			pending = (pending << Byte.SIZE) | (data[i] & 0xff);
+			pendingCount += Byte.SIZE;
+			while (pendingCount >= width) {
+				pendingCount -= width;
+				counts[(pending >>> pendingCount) & mask]++;
+			}
+			pending &= (1 << pendingCount) - 1;
+		}
+		size += length;
+	}
+
+	/**
+	 * Counts every symbol left in a stream. The stream is not closed.
+	 * @param in, the stream holding the bytes to count.
+	 * @throws IOException if reading from the stream fails.
+	 */
+	public void add(InputStream in) throws IOException {
+		byte[] chunk = new byte[CHUNK_SIZE];
+		int read = in.read(chunk, 0, chunk.length);
+		while (read != -1) {
+			add(chunk, 0, read);
+			read = in.read(chunk, 0, chunk.length);
+		}
+	}
+
+	/**
+	 * Finds the count of every symbol.
+	 * @return an array of 2^width counts indexed by symbol.
+	 */
+	public long[] counts() {
+		return counts.clone();
+	}
+
+	/**
+	 * Finds the number of bytes counted.
+	 * @return the total number of bytes counted.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of bits in each symbol.
+	 */
+	public int width() {
+		return width;
+	}
+}
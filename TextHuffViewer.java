@@ -1,10 +1,7 @@
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.io.InputStream;
 import java.util.Scanner;
 
 /**
@@ -21,6 +18,7 @@ public class TextHuffViewer implements IHuffViewer {
     private boolean myForce;
     private int myHeaderFormat;
     private final Scanner KEY;
+    private final CompressibilityEstimator ESTIMATOR = new CompressibilityEstimator();
 
     private static String HUFF_SUFFIX = ".hf";
     private static String UNHUFF_SUFFIX = ".unhf";
@@ -100,15 +98,35 @@ public class TextHuffViewer implements IHuffViewer {
             System.out.print("Current Header format for compressing: ");
             if (this.myHeaderFormat == IHuffConstants.STORE_COUNTS) {
                 System.out.println("Standard COUNT Format");
-            } else {
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_TREE) {
                 System.out.println("Standard TREE Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_CANONICAL) {
+                System.out.println("CANONICAL code Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_BLOCKS) {
+                System.out.println("Single pass BLOCK Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_SEEKABLE_BLOCKS) {
+                System.out.println("SEEKABLE BLOCK Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_VARINT_COUNTS) {
+                System.out.println("VARINT COUNT Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_SYMBOLS) {
+                System.out.println("16 bit SYMBOL Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_CONTEXTS) {
+                System.out.println("order-1 CONTEXT Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_ADAPTIVE) {
+                System.out.println("One pass ADAPTIVE Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_COMPACT_COUNTS) {
+                System.out.println("COMPACT COUNT Format");
+            } else if (this.myHeaderFormat == IHuffConstants.STORE_COMPACT_TREE) {
+                System.out.println("COMPACT TREE Format");
+            } else {
+                System.out.println("Smallest header (AUTO) Format");
             }
             System.out.println("Current force compression status: " + this.myForce);
             System.out.println();
             System.out.println("OPTIONS");
             System.out.println("1. File operations. ");
             System.out.println("2. Flip Force Compression status.");
-            System.out.println("3. Flip Header format.");
+            System.out.println("3. Change Header format.");
             System.out.println("4. Quit (or any value other than 1, 2, or 3)");
             System.out.println();
             choice = processChoice();
@@ -143,10 +161,32 @@ public class TextHuffViewer implements IHuffViewer {
             } else if (firstCharValue == MenuChoices.FLIP_COMPRESSION_STATUS.ordinal()) {
                 myForce = !myForce;
             } else {
-                // must be a 3, flip the header format
-                myHeaderFormat =
-                        (myHeaderFormat == IHuffConstants.STORE_COUNTS) ? IHuffConstants.STORE_TREE
-                                : IHuffConstants.STORE_COUNTS;
+                // must be a 3, move to the next header format
+                if (myHeaderFormat == IHuffConstants.STORE_COUNTS) {
+                    myHeaderFormat = IHuffConstants.STORE_TREE;
+                } else if (myHeaderFormat == IHuffConstants.STORE_TREE) {
+                    myHeaderFormat = IHuffConstants.STORE_CANONICAL;
+                } else if (myHeaderFormat == IHuffConstants.STORE_CANONICAL) {
+                    myHeaderFormat = IHuffConstants.STORE_BLOCKS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_BLOCKS) {
+                    myHeaderFormat = IHuffConstants.STORE_SEEKABLE_BLOCKS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_SEEKABLE_BLOCKS) {
+                    myHeaderFormat = IHuffConstants.STORE_VARINT_COUNTS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_VARINT_COUNTS) {
+                    myHeaderFormat = IHuffConstants.STORE_SYMBOLS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_SYMBOLS) {
+                    myHeaderFormat = IHuffConstants.STORE_CONTEXTS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_CONTEXTS) {
+                    myHeaderFormat = IHuffConstants.STORE_ADAPTIVE;
+                } else if (myHeaderFormat == IHuffConstants.STORE_ADAPTIVE) {
+                    myHeaderFormat = IHuffConstants.STORE_COMPACT_COUNTS;
+                } else if (myHeaderFormat == IHuffConstants.STORE_COMPACT_COUNTS) {
+                    myHeaderFormat = IHuffConstants.STORE_COMPACT_TREE;
+                } else if (myHeaderFormat == IHuffConstants.STORE_COMPACT_TREE) {
+                    myHeaderFormat = IHuffConstants.STORE_AUTO;
+                } else {
+                    myHeaderFormat = IHuffConstants.STORE_COUNTS;
+                }
 
             }
         }
@@ -187,7 +227,7 @@ public class TextHuffViewer implements IHuffViewer {
      */
     private void preprocess() {
         showMessage("Begining preprocessing of " + myInputFile + ".");
-        ByteArrayInputStream inputStream = getFastByteReader(myInputFile);
+        InputStream inputStream = getFastByteReader(myInputFile);
         try {
             int saved = myModel.preprocessCompress(inputStream, myHeaderFormat);
             showMessage("save(d): " + saved + " bits");
@@ -197,8 +237,35 @@ public class TextHuffViewer implements IHuffViewer {
         }
     }
 
+    /*
+     * Sample the input file to see if compressing it is futile, for the header
+     * formats the estimate fits.
+     */
+    private boolean isIncompressible() {
+        if (!CompressibilityEstimator.appliesTo(myHeaderFormat)) {
+            return false;
+        }
+        try {
+            CompressionEstimate estimate = ESTIMATOR.estimate(myInputFile);
+            if (!estimate.isCompressible()) {
+                showMessage("Not compressing " + myInputFile + ", estimated size is "
+                        + estimate.predictedSize() + " of " + estimate.totalBytes()
+                        + " bytes. Turn on force compression to compress anyway.");
+                return true;
+            }
+        } catch (IOException e) {
+            // read the whole file instead
+        }
+        return false;
+    }
+
     // Compress a file based on user input.
     private void compress() {
+        // unless compression is forced a file not expected to get smaller is not read at all
+        if (!myForce && isIncompressible()) {
+            myInputFile = null;
+            return;
+        }
         preprocess();
         String newName = myInputFile.getName() + HUFF_SUFFIX;
         newName = setNewFileName("compressed", newName);
@@ -207,7 +274,7 @@ public class TextHuffViewer implements IHuffViewer {
         } else {
             try {
                 FileOutputStream out = new FileOutputStream(new File(newName));
-                ByteArrayInputStream inputStream = getFastByteReader(myInputFile);
+                InputStream inputStream = getFastByteReader(myInputFile);
                 myModel.compress(inputStream, out, myForce);
             } catch (IOException e) {
                 showError("Problem while trying to compress file.");
@@ -280,7 +347,7 @@ public class TextHuffViewer implements IHuffViewer {
         uncompressedName = setNewFileName("compressed", uncompressedName);
         try {
             FileOutputStream out = new FileOutputStream(new File(uncompressedName));
-            ByteArrayInputStream inputStream = getFastByteReader(myInputFile);
+            InputStream inputStream = getFastByteReader(myInputFile);
             myModel.uncompress(inputStream, out);
         } catch (IOException e) {
             showError("Problem while trying to uncompress file.");
@@ -296,18 +363,11 @@ public class TextHuffViewer implements IHuffViewer {
         myInputFile = new File(path);
     }
 
-    // Get a ByteArrayInputStream to read from the given file.
-    private ByteArrayInputStream getFastByteReader(File f) {
+    // Get an InputStream that reads the given file in place.
+    private InputStream getFastByteReader(File f) {
         try {
-            FileChannel channel = new FileInputStream(f).getChannel();
-            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-            byte[] barray = new byte[buffer.limit()];
-            if (barray.length != channel.size()) {
-                showError(String.format("Reading %s error: lengths differ %d %ld\n", f.getName(),
-                        barray.length, channel.size()));
-            }
-            buffer.get(barray);
-            return new ByteArrayInputStream(barray);
+            // reads the mapped file in place instead of copying it onto the heap
+            return new MappedInputStream(f);
         } catch (IOException e) {
             e.printStackTrace();
         }
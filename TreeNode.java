@@ -26,7 +26,7 @@ public class TreeNode implements Comparable<TreeNode> {
      * The frequency of the value for leaf nodes or the sum of the 
      * frequency of the children for internal nodes.
      */
-    private int frequency;
+    private long frequency;
 
     // The left child of this node. Equals null if no left child.
     private TreeNode left;
@@ -41,7 +41,7 @@ public class TreeNode implements Comparable<TreeNode> {
      * @param value is the value stored in the node (e.g., value from original file)
      * @param freq is number of times value occurred (e.g., count of # occurrences)
      */
-    public TreeNode(int value, int freq) {
+    public TreeNode(int value, long freq) {
         this.value = value;
         frequency = freq;
     }
@@ -72,7 +72,7 @@ public class TreeNode implements Comparable<TreeNode> {
 
     public int compareTo(TreeNode rhs) {
 
-        return frequency - rhs.frequency;
+        return Long.compare(frequency, rhs.frequency);
     }
 
     /**
@@ -96,7 +96,7 @@ public class TreeNode implements Comparable<TreeNode> {
      * Get the frequency of this node.
      * @return the frequency of this node. For internal nods the value should be the sum of the child nodes
      */
-    public int getFrequency() {
+    public long getFrequency() {
         return frequency;
     }
 
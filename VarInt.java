@@ -0,0 +1,67 @@
+import java.io.IOException;
+
+/**
+ * Writes and reads non-negative numbers in as few bytes as they need. Each byte holds
+ * 7 bits of the number, most significant first, and its leftmost bit is 1 if another
+ * byte follows, so small numbers take one byte and any long takes at most ten.
+ */
+public class VarInt implements IHuffConstants {
+
+	//the bits of the number held by each byte
+	private static final int BITS_PER_GROUP = BITS_PER_WORD - 1;
+	private static final int GROUP_MASK = (1 << BITS_PER_GROUP) - 1;
+	private static final int MORE = 1 << BITS_PER_GROUP;
+
+	private VarInt() {
+	}
+
+	/**
+	 * Writes a number to a BitOutputStream.
+	 * pre: value >= 0
+	 * @param bos, the BitOutputStream to write to.
+	 * @param value, the number to write.
+	 * @return the number of bits written.
+	 */
+	public static int write(BitOutputStream bos, long value) {
+		int groups = size(value) / BITS_PER_WORD;
+		for (int group = groups - 1; group > 0; group--) {
+			bos.writeBits(BITS_PER_WORD, MORE | (int) (value >>> (group * BITS_PER_GROUP)) & GROUP_MASK);
+		}
+		bos.writeBits(BITS_PER_WORD, (int) value & GROUP_MASK);
+		return groups * BITS_PER_WORD;
+	}
+
+	/**
+	 * Reads a number from a BitInputStream.
+	 * @param bis, the BitInputStream to read from.
+	 * @return the number read.
+	 * @throws IOException if the input runs out or the number does not fit in a long.
+	 */
+	public static long read(BitInputStream bis) throws IOException {
+		long value = 0;
+		int next = MORE;
+		while ((next & MORE) != 0) {
+			next = bis.readBits(BITS_PER_WORD);
+			if (next == -1) {
+				throw new IOException("Format of file is bad, ran out of bits.");
+			}
+			if (value >>> (Long.SIZE - BITS_PER_GROUP) != 0) {
+				throw new IOException("Format of file is bad, number is too big.");
+			}
+			value = (value << BITS_PER_GROUP) | (next & GROUP_MASK);
+		}
+		return value;
+	}
+
+	/**
+	 * Finds the number of bits the given number is written in.
+	 * pre: value >= 0
+	 * @param value, the number to be written.
+	 * @return the number of bits it takes, a multiple of BITS_PER_WORD.
+	 */
+	public static int size(long value) {
+		int significant = Long.SIZE - Long.numberOfLeadingZeros(value);
+		int groups = Math.max(1, (significant + BITS_PER_GROUP - 1) / BITS_PER_GROUP);
+		return groups * BITS_PER_WORD;
+	}
+}
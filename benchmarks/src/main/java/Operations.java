@@ -0,0 +1,271 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import benchmarks.Operation;
+
+/**
+ * The operations the benchmarks time, each calling the Huffman classes in the default
+ * package, see <code>benchmarks.Operation</code>. Payloads are compressed from and
+ * to memory and output is thrown away, so only the Huffman classes are timed.
+ */
+public class Operations implements IHuffConstants {
+
+	private Operations() {
+	}
+
+	/**
+	 * Reads every bit of the payload a given number of bits at a time.
+	 */
+	public static class ReadBits implements Operation {
+
+		private byte[] data;
+		private int width;
+		private int count;
+
+		public void setup(byte[] data, String parameter) {
+			this.data = data;
+			width = Integer.parseInt(parameter);
+			count = data.length * BITS_PER_WORD / width;
+		}
+
+		public long run() throws IOException {
+			BitInputStream in = new BitInputStream(ByteBuffer.wrap(data));
+			long sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += in.readBits(width);
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Writes as many bits as the payload has a given number of bits at a time.
+	 */
+	public static class WriteBits implements Operation {
+
+		private int width;
+		private int count;
+
+		public void setup(byte[] data, String parameter) {
+			width = Integer.parseInt(parameter);
+			count = data.length * BITS_PER_WORD / width;
+		}
+
+		public long run() {
+			BitOutputStream out = new BitOutputStream(OutputStream.nullOutputStream());
+			for (int i = 0; i < count; i++) {
+				out.writeBits(width, i);
+			}
+			out.flush();
+			return count;
+		}
+	}
+
+	/**
+	 * Counts the payload with a Histogram on the calling thread.
+	 */
+	public static class CountBytes implements Operation {
+
+		private byte[] data;
+
+		public void setup(byte[] data, String parameter) {
+			this.data = data;
+		}
+
+		public long run() {
+			Histogram histogram = new Histogram();
+			histogram.add(data, 0, data.length);
+			return histogram.counts()[0];
+		}
+	}
+
+	/**
+	 * Counts the payload with a ParallelHistogram on the common pool.
+	 */
+	public static class CountBytesParallel implements Operation {
+
+		private byte[] data;
+		private ParallelHistogram counter;
+
+		public void setup(byte[] data, String parameter) {
+			this.data = data;
+			counter = new ParallelHistogram();
+		}
+
+		public long run() {
+			return counter.count(ByteBuffer.wrap(data)).counts()[0];
+		}
+	}
+
+	/**
+	 * Builds a HuffmanTree from a queue of a TreeNode for each value in the payload.
+	 */
+	public static class BuildTree implements Operation {
+
+		private long[] freqs;
+
+		public void setup(byte[] data, String parameter) {
+			freqs = freqs(data);
+		}
+
+		public long run() {
+			return tree(freqs).size();
+		}
+	}
+
+	/**
+	 * Makes the map of codings of a HuffmanTree of the payload.
+	 */
+	public static class NewCodeMap implements Operation {
+
+		private HuffmanTree tree;
+
+		public void setup(byte[] data, String parameter) {
+			tree = tree(freqs(data));
+		}
+
+		public long run() {
+			return tree.newCodeMap().size();
+		}
+	}
+
+	/**
+	 * Finds the codings of the payload with a HuffmanCodeBuilder, as the compressor does.
+	 */
+	public static class CodeBuilder implements Operation {
+
+		private long[] freqs;
+		private HuffmanCodeBuilder builder;
+		private long[] codes;
+		private int[] lengths;
+
+		public void setup(byte[] data, String parameter) {
+			freqs = freqs(data);
+			builder = new HuffmanCodeBuilder(freqs.length);
+			codes = new long[freqs.length];
+			lengths = new int[freqs.length];
+		}
+
+		public long run() {
+			builder.build(freqs);
+			builder.fillCodes(codes, lengths);
+			return codes[PSEUDO_EOF];
+		}
+	}
+
+	/**
+	 * Finds the coding lengths of the payload limited to the default longest coding.
+	 */
+	public static class LimitLengths implements Operation {
+
+		private long[] freqs;
+
+		public void setup(byte[] data, String parameter) {
+			freqs = freqs(data);
+		}
+
+		public long run() {
+			return LengthLimitedCode.lengths(freqs, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH)[PSEUDO_EOF];
+		}
+	}
+
+	/**
+	 * Counts the payload and plans its compression with a given header format.
+	 */
+	public static class Preprocess implements Operation {
+
+		private byte[] data;
+		private int headerFormat;
+
+		public void setup(byte[] data, String parameter) {
+			this.data = data;
+			headerFormat = headerFormat(parameter);
+		}
+
+		public long run() throws IOException {
+			return new SimpleHuffProcessor().preprocessCompressLarge(new ByteArrayInputStream(data), headerFormat);
+		}
+	}
+
+	/**
+	 * Compresses the payload with a plan made in setup.
+	 */
+	public static class Compress implements Operation {
+
+		private byte[] data;
+		private SimpleHuffProcessor processor;
+
+		public void setup(byte[] data, String parameter) throws IOException {
+			this.data = data;
+			processor = new SimpleHuffProcessor();
+			processor.preprocessCompressLarge(new ByteArrayInputStream(data), headerFormat(parameter));
+		}
+
+		public long run() throws IOException {
+			return processor.compressLarge(new ByteArrayInputStream(data), OutputStream.nullOutputStream(), true);
+		}
+	}
+
+	/**
+	 * Uncompresses the payload compressed in setup.
+	 */
+	public static class Uncompress implements Operation {
+
+		private byte[] compressed;
+		private SimpleHuffProcessor processor;
+
+		public void setup(byte[] data, String parameter) throws IOException {
+			processor = new SimpleHuffProcessor();
+			processor.preprocessCompressLarge(new ByteArrayInputStream(data), headerFormat(parameter));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			processor.compressLarge(new ByteArrayInputStream(data), out, true);
+			compressed = out.toByteArray();
+		}
+
+		public long run() throws IOException {
+			return processor.uncompressLarge(new ByteArrayInputStream(compressed), OutputStream.nullOutputStream());
+		}
+	}
+
+	/**
+	 * Helper method that counts every value of a payload plus one PSEUDO_EOF.
+	 */
+	private static long[] freqs(byte[] data) {
+		Histogram histogram = new Histogram();
+		histogram.add(data, 0, data.length);
+		long[] freqs = new long[ALPH_SIZE + 1];
+		System.arraycopy(histogram.counts(), 0, freqs, 0, ALPH_SIZE);
+		freqs[PSEUDO_EOF] = 1;
+		return freqs;
+	}
+
+	/**
+	 * Helper method that builds a HuffmanTree the way the original compressor did.
+	 */
+	private static HuffmanTree tree(long[] freqs) {
+		HuffPriorityQueue<TreeNode> queue = new HuffPriorityQueue<>();
+		for (int value = 0; value < freqs.length; value++) {
+			if (freqs[value] > 0) {
+				queue.enqueue(new TreeNode(value, freqs[value]));
+			}
+		}
+		return new HuffmanTree(queue);
+	}
+
+	/**
+	 * Helper method that finds the header format named by a benchmark parameter.
+	 */
+	private static int headerFormat(String name) {
+		if (name.equals("STORE_COUNTS")) {
+			return STORE_COUNTS;
+		} else if (name.equals("STORE_CANONICAL")) {
+			return STORE_CANONICAL;
+		} else if (name.equals("STORE_BLOCKS")) {
+			return STORE_BLOCKS;
+		}
+		throw new IllegalArgumentException("unknown header format " + name);
+	}
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times BitInputStream.readBits and BitOutputStream.writeBits, reading or writing
+ * 64 KB of bits a given number of bits at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitStreamBenchmark {
+
+	private static final int DATA_SIZE = 1 << 16;
+
+	@Param({"ReadBits", "WriteBits"})
+	public String operation;
+
+	@Param({"1", "8", "13", "32"})
+	public String width;
+
+	private Operation op;
+
+	@Setup
+	public void setup() throws IOException {
+		op = Operation.create(operation);
+		op.setup(Payloads.make("random", DATA_SIZE), width);
+	}
+
+	@Benchmark
+	public long run() throws IOException {
+		return op.run();
+	}
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times SimpleHuffProcessor's preprocessCompress, compress and uncompress across
+ * payload sizes, entropy profiles and header formats. Compress and uncompress reuse
+ * a plan and compressed bytes made once per trial, so each times only its own step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressBenchmark {
+
+	@Param({"Preprocess", "Compress", "Uncompress"})
+	public String operation;
+
+	@Param({"4096", "1048576", "16777216"})
+	public int size;
+
+	@Param({"text", "skewed", "random"})
+	public String profile;
+
+	@Param({"STORE_COUNTS", "STORE_CANONICAL", "STORE_BLOCKS"})
+	public String format;
+
+	private Operation op;
+
+	@Setup
+	public void setup() throws IOException {
+		op = Operation.create(operation);
+		op.setup(Payloads.make(profile, size), format);
+	}
+
+	@Benchmark
+	public long run() throws IOException {
+		return op.run();
+	}
+}
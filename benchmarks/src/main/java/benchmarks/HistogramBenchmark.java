@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times counting the bytes of a payload, on one thread with Histogram and split
+ * over the common pool with ParallelHistogram.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+	@Param({"CountBytes", "CountBytesParallel"})
+	public String operation;
+
+	@Param({"4096", "1048576", "16777216"})
+	public int size;
+
+	@Param({"text", "skewed", "random"})
+	public String profile;
+
+	private Operation op;
+
+	@Setup
+	public void setup() throws IOException {
+		op = Operation.create(operation);
+		op.setup(Payloads.make(profile, size), null);
+	}
+
+	@Benchmark
+	public long run() throws IOException {
+		return op.run();
+	}
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler turned on, so every result comes with
+ * the bytes allocated per operation and the time spent collecting them. Takes the
+ * same arguments as the JMH runner, for example
+ * <pre>
+ * java -jar benchmarks.jar CompressBenchmark -p size=4096 -rf json
+ * </pre>
+ */
+public class HuffBenchmarks {
+
+	/**
+	 * Runs the benchmarks chosen on the command line, or all of them.
+	 * @param args the JMH command line options.
+	 */
+	public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		Runner runner = new Runner(new OptionsBuilder().parent(options)
+				.addProfiler(GCProfiler.class).build());
+		if (options.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+}
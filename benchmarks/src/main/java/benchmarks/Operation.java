@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * One operation of the Huffman classes under test. JMH can't run benchmarks in the
+ * default package and classes in a package can't use the default package, so each
+ * benchmark makes its operation by name, see <code>Operations</code> in the default
+ * package, and calls it through this interface. Each benchmark uses one operation per
+ * fork, so the call is inlined like a direct one.
+ */
+public interface Operation {
+
+	/**
+	 * Gets ready to run, doing everything that shouldn't be timed.
+	 * @param data, the payload the operation works on.
+	 * @param parameter, what the operation needs besides the payload, such as a
+	 * number of bits or the name of a header format.
+	 * @throws IOException if an error occurs while setting up.
+	 */
+	void setup(byte[] data, String parameter) throws IOException;
+
+	/**
+	 * Runs the operation once.
+	 * @return a result that depends on the work done, so it isn't optimized away.
+	 * It is a long and not an object so returning it allocates nothing.
+	 * @throws IOException if an error occurs while running.
+	 */
+	long run() throws IOException;
+
+	/**
+	 * Makes an operation of the default package class Operations.
+	 * @param name, the name of the operation, the simple name of its class.
+	 * @return the operation.
+	 */
+	static Operation create(String name) {
+		try {
+			return (Operation) Class.forName("Operations$" + name).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("unknown operation " + name, e);
+		}
+	}
+}
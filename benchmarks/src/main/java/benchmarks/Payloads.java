@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Makes the data the benchmarks compress, with the same bytes on every run. Each
+ * profile has a different entropy:
+ * <ul>
+ * <li><tt>text</tt>, words of English from a small vocabulary, about 4.5 bits per byte.</li>
+ * <li><tt>skewed</tt>, bytes whose counts fall off geometrically, about 2 bits per byte.</li>
+ * <li><tt>random</tt>, uniformly random bytes, 8 bits per byte, which don't compress.</li>
+ * <li><tt>constant</tt>, one byte repeated, the smallest possible tree.</li>
+ * </ul>
+ */
+public class Payloads {
+
+	private static final String[] WORDS = {"the", "of", "and", "to", "in", "a", "is", "that",
+			"for", "it", "as", "was", "with", "be", "by", "on", "not", "he", "this", "are",
+			"or", "his", "from", "at", "which", "but", "have", "an", "had", "they", "you",
+			"were", "their", "one", "all", "we", "can", "her", "has", "there", "been", "if",
+			"more", "when", "will", "would", "who", "so", "no", "compression", "Huffman",
+			"tree", "coding", "frequency", "symbol", "stream", "block", "header"};
+
+	private static final long SEED = 42;
+
+	private Payloads() {
+	}
+
+	/**
+	 * Makes a payload.
+	 * @param profile, one of text, skewed, random or constant.
+	 * @param size, the number of bytes.
+	 * @return the bytes of the payload.
+	 */
+	public static byte[] make(String profile, int size) {
+		Random random = new Random(SEED);
+		byte[] data = new byte[size];
+		if (profile.equals("text")) {
+			int i = 0;
+			while (i < size) {
+				String word = WORDS[random.nextInt(WORDS.length)];
+				for (int c = 0; c < word.length() && i < size; c++) {
+					data[i++] = (byte) word.charAt(c);
+				}
+				if (i < size) {
+					data[i++] = (byte) (random.nextInt(12) == 0 ? '\n' : ' ');
+				}
+			}
+		} else if (profile.equals("skewed")) {
+			for (int i = 0; i < size; i++) {
+				//each value is half as likely as the one before it
+				data[i] = (byte) Math.min(255, Long.numberOfTrailingZeros(random.nextLong() | Long.MIN_VALUE));
+			}
+		} else if (profile.equals("random")) {
+			random.nextBytes(data);
+		} else if (profile.equals("constant")) {
+			Arrays.fill(data, (byte) 'a');
+		} else {
+			throw new IllegalArgumentException("unknown payload profile " + profile);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times finding codings from the counts of a 1 MB payload: building a HuffmanTree
+ * from a queue of TreeNodes, its newCodeMap, and the array based HuffmanCodeBuilder
+ * and LengthLimitedCode the compressor uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+	private static final int DATA_SIZE = 1 << 20;
+
+	@Param({"BuildTree", "NewCodeMap", "CodeBuilder", "LimitLengths"})
+	public String operation;
+
+	@Param({"text", "skewed", "random", "constant"})
+	public String profile;
+
+	private Operation op;
+
+	@Setup
+	public void setup() throws IOException {
+		op = Operation.create(operation);
+		op.setup(Payloads.make(profile, DATA_SIZE), null);
+	}
+
+	@Benchmark
+	public long run() throws IOException {
+		return op.run();
+	}
+}
@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Writes through an AdaptiveHuffmanOutputStream and reads the bytes back, whole and
+ * up to a flush.
+ */
+public class AdaptiveHuffmanStreamTest implements IHuffConstants {
+
+	@Test
+	public void streamsRoundTrip() throws IOException {
+		for (byte[] input: HuffProcessorTest.inputs()) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed);
+			out.write(input, 0, input.length);
+			out.close();
+			AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(
+					new ByteArrayInputStream(compressed.toByteArray()));
+			assertArrayEquals(input, in.readAllBytes());
+			assertEquals(compressed.size(), (out.bitsWritten() + BITS_PER_WORD - 1) / BITS_PER_WORD);
+		}
+	}
+
+	@Test
+	public void flushSendsEveryByteWritten() throws IOException {
+		byte[] hello = "hello".getBytes(StandardCharsets.US_ASCII);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		AdaptiveHuffmanOutputStream out = new AdaptiveHuffmanOutputStream(compressed);
+		out.write(hello, 0, hello.length);
+		out.flush();
+		//the stream is still open, so a reader has only the bytes flushed so far
+		byte[] flushed = compressed.toByteArray();
+		assertEquals(flushed.length * (long) BITS_PER_WORD, out.bitsWritten());
+		AdaptiveHuffmanInputStream in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(flushed));
+		byte[] buffer = new byte[100];
+		assertEquals(hello.length, in.read(buffer, 0, buffer.length));
+		assertArrayEquals(hello, Arrays.copyOf(buffer, hello.length));
+		//bytes written after the flush follow on in the same stream
+		byte[] world = " world".getBytes(StandardCharsets.US_ASCII);
+		out.write(world, 0, world.length);
+		out.close();
+		in = new AdaptiveHuffmanInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		assertArrayEquals("hello world".getBytes(StandardCharsets.US_ASCII), in.readAllBytes());
+	}
+}
@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks estimates against the sizes SimpleHuffProcessor really compresses to, and the
+ * ordering of their bounds.
+ */
+public class CompressibilityEstimatorTest implements IHuffConstants {
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void smallDataIsReadCompletely() throws IOException {
+		byte[] data = HuffProcessorTest.resource("text.txt");
+		CompressionEstimate estimate = new CompressibilityEstimator().estimate(ByteBuffer.wrap(data));
+		assertTrue(estimate.isExact());
+		assertEquals(data.length, estimate.totalBytes());
+		assertEquals(data.length, estimate.sampledBytes());
+		assertEquals(estimate.predictedSize(), estimate.lowerBound());
+		assertEquals(estimate.predictedSize(), estimate.upperBound());
+		//the prediction is the Huffman coding of the data, and no header is smaller than none
+		assertTrue(estimate.entropy() <= estimate.bitsPerByte());
+		assertTrue(estimate.bitsPerByte() < estimate.entropy() + 1);
+		assertTrue(estimate.predictedSize() <= HuffProcessorTest.compress(data, STORE_CANONICAL, null).length);
+	}
+
+	@Test
+	public void boundsAreOrdered() throws IOException {
+		byte[] text = HuffProcessorTest.resource("text.txt");
+		byte[] data = new byte[50 * text.length];
+		for (int i = 0; i < 50; i++) {
+			System.arraycopy(text, 0, data, i * text.length, text.length);
+		}
+		File file = new File(dir, "text.bin");
+		Files.write(file.toPath(), data);
+		CompressibilityEstimator estimator = new CompressibilityEstimator(8, 1024);
+		CompressionEstimate estimate = estimator.estimate(file);
+		assertFalse(estimate.isExact());
+		assertEquals(8 * 1024, estimate.sampledBytes());
+		assertTrue(estimate.lowerBound() <= estimate.predictedSize());
+		assertTrue(estimate.predictedSize() <= estimate.upperBound());
+		assertTrue(estimate.isCompressible());
+		//a file and a buffer of the same bytes are sampled the same way
+		CompressionEstimate fromBuffer = estimator.estimate(ByteBuffer.wrap(data));
+		assertEquals(estimate.predictedSize(), fromBuffer.predictedSize());
+		assertEquals(estimate.upperBound(), fromBuffer.upperBound());
+	}
+
+	@Test
+	public void randomDataIsIncompressible() throws IOException {
+		byte[] data = HuffProcessorTest.random(1 << 20, 6);
+		CompressionEstimate estimate = new CompressibilityEstimator().estimate(ByteBuffer.wrap(data));
+		assertFalse(estimate.isCompressible());
+		SimpleHuffProcessor processor = new SimpleHuffProcessor();
+		assertTrue(processor.preprocessCompress(new ByteArrayInputStream(data), STORE_CANONICAL) <= 0);
+	}
+
+	@Test
+	public void estimatesFitOnlyByteFormats() {
+		int[] fits = {STORE_COUNTS, STORE_TREE, STORE_CANONICAL, STORE_VARINT_COUNTS,
+				STORE_SHARED_TABLE, STORE_COMPACT_COUNTS, STORE_COMPACT_TREE, STORE_AUTO};
+		for (int format: fits) {
+			assertTrue(CompressibilityEstimator.appliesTo(format), Integer.toHexString(format));
+		}
+		int[] others = {STORE_BLOCKS, STORE_SEEKABLE_BLOCKS, STORE_SYMBOLS, STORE_CONTEXTS, STORE_ADAPTIVE};
+		for (int format: others) {
+			assertFalse(CompressibilityEstimator.appliesTo(format), Integer.toHexString(format));
+		}
+	}
+
+	@Test
+	public void badSamplesAreRejected() {
+		try {
+			new CompressibilityEstimator(1, 1024);
+			fail("one chunk was accepted");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,155 @@
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds truncated and corrupt compressed files to the decoders, which must reject
+ * them with an IOException and nothing else.
+ */
+public class CorruptInputTest implements IHuffConstants {
+
+	@Test
+	public void badMagicNumberIsRejected() throws IOException {
+		byte[] compressed = HuffProcessorTest.compress(HuffProcessorTest.resource("text.txt"), STORE_COUNTS, null);
+		compressed[0] ^= 1;
+		assertRejected(compressed);
+	}
+
+	@Test
+	public void unknownHeaderFormatIsRejected() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BitOutputStream bos = new BitOutputStream(out);
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER | (1 << 14));
+		bos.writeBits(BITS_PER_INT, 0);
+		bos.close();
+		assertRejected(out.toByteArray());
+	}
+
+	@Test
+	public void lengthsThatAreNotAPrefixCodeAreRejected() {
+		//three codings of one bit can't all be told apart
+		int[] lengths = new int[ALPH_SIZE + 1];
+		lengths['a'] = 1;
+		lengths['b'] = 1;
+		lengths[PSEUDO_EOF] = 1;
+		assertRejected(canonicalFile(lengths));
+	}
+
+	@Test
+	public void lengthsThatCodeNothingAreRejected() {
+		assertRejected(canonicalFile(new int[ALPH_SIZE + 1]));
+	}
+
+	@Test
+	public void blockLengthsThatCodeNothingAreRejected() throws IOException {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		BitOutputStream lengths = new BitOutputStream(payload);
+		CanonicalCode.writeLengths(lengths, new int[ALPH_SIZE]);
+		lengths.close();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BitOutputStream bos = new BitOutputStream(out);
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		bos.writeBits(BITS_PER_INT, STORE_BLOCKS);
+		bos.writeBits(BITS_PER_INT, BlockCompressor.MIN_BLOCK_SIZE);
+		bos.writeBits(BlockCompressor.BITS_PER_BLOCK_TYPE, BlockCompressor.BLOCK_HUFFMAN);
+		bos.writeBits(BITS_PER_INT, payload.size());
+		bos.writeBits(BITS_PER_INT, payload.size());
+		bos.writeBytes(payload.toByteArray(), 0, payload.size());
+		bos.writeBits(BlockCompressor.BITS_PER_BLOCK_TYPE, BlockCompressor.BLOCK_END);
+		bos.close();
+		byte[] file = out.toByteArray();
+		assertRejected(file);
+		//uncompresses on the calling thread and on a pool
+		ForkJoinPool[] pools = {null, ForkJoinPool.commonPool()};
+		for (ForkJoinPool pool: pools) {
+			BitInputStream bis = new BitInputStream(new ByteArrayInputStream(file));
+			bis.readBits(BITS_PER_INT);
+			bis.readBits(BITS_PER_INT);
+			try {
+				new BlockDecompressor(bis, new BitOutputStream(new ByteArrayOutputStream()), pool).writeOutBytes();
+				fail("an empty block code was accepted");
+			} catch (IOException e) {
+				//expected
+			}
+		}
+	}
+
+	@Test
+	public void truncatedFilesAreRejected() throws IOException {
+		CodeTable table = HuffProcessorTest.sharedTable();
+		byte[] data = HuffProcessorTest.resource("text.txt");
+		for (int format: HuffProcessorTest.FORMATS) {
+			byte[] compressed = HuffProcessorTest.compress(data, format, table);
+			//cuts inside the magic number, the format, the header and the data
+			int[] cuts = {0, 3, 6, 10, 20, compressed.length / 2};
+			for (int cut: cuts) {
+				byte[] truncated = Arrays.copyOf(compressed, cut);
+				try {
+					HuffProcessorTest.uncompress(truncated, table);
+					fail("format " + Integer.toHexString(format) + " cut at " + cut + " was accepted");
+				} catch (IOException e) {
+					//expected
+				}
+			}
+		}
+	}
+
+	@Test
+	public void corruptHeadersThrowOnlyIOException() throws IOException {
+		CodeTable table = HuffProcessorTest.sharedTable();
+		byte[] data = HuffProcessorTest.resource("skew.bin");
+		Random random = new Random(11);
+		for (int format: HuffProcessorTest.FORMATS) {
+			byte[] compressed = HuffProcessorTest.compress(data, format, table);
+			for (int trial = 0; trial < 200; trial++) {
+				byte[] corrupt = compressed.clone();
+				//leaves the magic number and format alone so the header itself is read
+				int position = 2 * BITS_PER_INT / BITS_PER_WORD
+						+ random.nextInt(Math.min(64, corrupt.length - 2 * BITS_PER_INT / BITS_PER_WORD));
+				corrupt[position] ^= 1 << random.nextInt(BITS_PER_WORD);
+				try {
+					HuffProcessorTest.uncompress(corrupt, table);
+				} catch (IOException e) {
+					//a corrupt file may be rejected, or may still decode to some bytes
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes a STORE_CANONICAL file with the given coding lengths and no data.
+	 * @param lengths, the coding length of every value and PSEUDO_EOF.
+	 * @return the bytes of the file.
+	 */
+	private static byte[] canonicalFile(int[] lengths) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BitOutputStream bos = new BitOutputStream(out);
+		bos.writeBits(BITS_PER_INT, MAGIC_NUMBER);
+		bos.writeBits(BITS_PER_INT, STORE_CANONICAL);
+		CanonicalCode.writeLengths(bos, lengths);
+		bos.writeBits(BITS_PER_INT, 0);
+		bos.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Checks that uncompressing a file throws an IOException.
+	 * @param compressed, the compressed file.
+	 */
+	private static void assertRejected(byte[] compressed) {
+		try {
+			HuffProcessorTest.uncompress(compressed, null);
+			fail("a bad file was accepted");
+		} catch (IOException e) {
+			//expected
+		}
+	}
+}
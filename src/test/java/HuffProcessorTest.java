@@ -0,0 +1,177 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compresses the fixtures in src/test/resources with every header format and checks
+ * they uncompress to the same bytes, and that the standard count and tree formats
+ * still write exactly the bytes the original HuffProcessor wrote.
+ */
+public class HuffProcessorTest implements IHuffConstants {
+
+	/**
+	 * The inputs in src/test/resources. Each has a .counts.hf and a .tree.hf made by
+	 * the original HuffProcessor.
+	 */
+	static final String[] FIXTURES = {"text.txt", "skew.bin", "one.bin", "empty.bin"};
+
+	/**
+	 * Every header format a SimpleHuffProcessor can compress with.
+	 */
+	static final int[] FORMATS = {STORE_COUNTS, STORE_TREE, STORE_CANONICAL, STORE_BLOCKS,
+			STORE_SEEKABLE_BLOCKS, STORE_VARINT_COUNTS, STORE_SYMBOLS, STORE_CONTEXTS,
+			STORE_ADAPTIVE, STORE_SHARED_TABLE, STORE_COMPACT_COUNTS, STORE_COMPACT_TREE, STORE_AUTO};
+
+	@Test
+	public void everyFormatRoundTrips() throws IOException {
+		CodeTable table = sharedTable();
+		byte[][] inputs = inputs();
+		for (int format: FORMATS) {
+			for (int i = 0; i < inputs.length; i++) {
+				byte[] compressed = compress(inputs[i], format, table);
+				assertArrayEquals(inputs[i], uncompress(compressed, table),
+						"format " + Integer.toHexString(format) + ", input " + i);
+			}
+		}
+	}
+
+	@Test
+	public void legacyFormatsAreByteIdentical() throws IOException {
+		for (String fixture: FIXTURES) {
+			byte[] data = resource(fixture);
+			assertArrayEquals(resource(fixture + ".counts.hf"), compress(data, STORE_COUNTS, null),
+					fixture + " in count format");
+			assertArrayEquals(resource(fixture + ".tree.hf"), compress(data, STORE_TREE, null),
+					fixture + " in tree format");
+		}
+	}
+
+	@Test
+	public void legacyFilesUncompress() throws IOException {
+		for (String fixture: FIXTURES) {
+			byte[] data = resource(fixture);
+			assertArrayEquals(data, uncompress(resource(fixture + ".counts.hf"), null), fixture);
+			assertArrayEquals(data, uncompress(resource(fixture + ".tree.hf"), null), fixture);
+		}
+	}
+
+	@Test
+	public void everySymbolWidthRoundTrips() throws IOException {
+		byte[][] inputs = inputs();
+		for (int width = MIN_SYMBOL_WIDTH; width <= MAX_SYMBOL_WIDTH; width++) {
+			for (int i = 0; i < inputs.length; i++) {
+				SimpleHuffProcessor processor = new SimpleHuffProcessor();
+				processor.setSymbolWidth(width);
+				processor.preprocessCompress(new ByteArrayInputStream(inputs[i]), STORE_SYMBOLS);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				processor.compress(new ByteArrayInputStream(inputs[i]), out, true);
+				assertArrayEquals(inputs[i], uncompress(out.toByteArray(), null), "width " + width + ", input " + i);
+			}
+		}
+	}
+
+	@Test
+	public void shorterSymbolFileIsRejected() throws IOException {
+		//one 13 bit symbol and 11 bits left over, which the shorter file doesn't have
+		byte[] data = {1, 2, 3};
+		SimpleHuffProcessor processor = new SimpleHuffProcessor();
+		processor.setSymbolWidth(13);
+		processor.preprocessCompress(new ByteArrayInputStream(data), STORE_SYMBOLS);
+		try {
+			processor.compress(new ByteArrayInputStream(data, 0, 2), new ByteArrayOutputStream(), true);
+			fail("a file shorter than the one counted was compressed");
+		} catch (IOException e) {
+			//expected
+		}
+	}
+
+	/**
+	 * Compresses data with a new SimpleHuffProcessor, forcing the output.
+	 * @param data, the bytes to compress.
+	 * @param format, the header format.
+	 * @param table, the shared code table, needed only for STORE_SHARED_TABLE.
+	 * @return the compressed bytes.
+	 */
+	static byte[] compress(byte[] data, int format, CodeTable table) throws IOException {
+		SimpleHuffProcessor processor = new SimpleHuffProcessor();
+		//small blocks so the block formats write several
+		processor.setBlockSize(BlockCompressor.MIN_BLOCK_SIZE);
+		if (table != null) {
+			processor.setSharedTable(table);
+		}
+		processor.preprocessCompress(new ByteArrayInputStream(data), format);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		processor.compress(new ByteArrayInputStream(data), out, true);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Uncompresses data with a new SimpleHuffProcessor.
+	 * @param compressed, the compressed bytes.
+	 * @param table, a shared code table to register, or null.
+	 * @return the uncompressed bytes.
+	 */
+	static byte[] uncompress(byte[] compressed, CodeTable table) throws IOException {
+		SimpleHuffProcessor processor = new SimpleHuffProcessor();
+		if (table != null) {
+			processor.getCodeTables().register(table);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		processor.uncompress(new ByteArrayInputStream(compressed), out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return a shared code table trained on the text fixture.
+	 */
+	static CodeTable sharedTable() throws IOException {
+		Histogram corpus = new Histogram();
+		corpus.add(new ByteArrayInputStream(resource("text.txt")));
+		return CodeTable.train(7, corpus, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH);
+	}
+
+	/**
+	 * @return the fixtures and some random bytes, which don't compress.
+	 */
+	static byte[][] inputs() throws IOException {
+		byte[][] inputs = new byte[FIXTURES.length + 1][];
+		for (int i = 0; i < FIXTURES.length; i++) {
+			inputs[i] = resource(FIXTURES[i]);
+		}
+		inputs[FIXTURES.length] = random(12305, 5);
+		return inputs;
+	}
+
+	/**
+	 * Makes random bytes that are the same on every run.
+	 * @param length, the number of bytes.
+	 * @param seed, the seed of the random bytes.
+	 * @return the bytes.
+	 */
+	static byte[] random(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Reads a file in src/test/resources.
+	 * @param name, the name of the file.
+	 * @return the bytes of the file.
+	 */
+	static byte[] resource(String name) throws IOException {
+		try (InputStream in = HuffProcessorTest.class.getResourceAsStream("/" + name)) {
+			if (in == null) {
+				throw new IOException("missing test resource " + name);
+			}
+			return in.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips buffers and channels through HuffmanCodec on the calling thread and on
+ * a pool, and checks the limits it promises.
+ */
+public class HuffmanCodecTest {
+
+	/**
+	 * @return a codec with the defaults, one with small blocks on the calling thread
+	 * and one with small blocks on the common pool.
+	 */
+	private static HuffmanCodec[] codecs() {
+		return new HuffmanCodec[] {new HuffmanCodec(),
+				new HuffmanCodec(BlockCompressor.MIN_BLOCK_SIZE, 12, null),
+				new HuffmanCodec(BlockCompressor.MIN_BLOCK_SIZE, 12, ForkJoinPool.commonPool())};
+	}
+
+	@Test
+	public void buffersRoundTrip() throws IOException {
+		for (HuffmanCodec codec: codecs()) {
+			for (byte[] input: HuffProcessorTest.inputs()) {
+				//a direct source is read in place, not through an array
+				ByteBuffer src = ByteBuffer.allocateDirect(Math.max(input.length, 1));
+				src.put(input).flip();
+				ByteBuffer dst = ByteBuffer.allocate((int) codec.maxCompressedLength(input.length));
+				int written = codec.compress(src, dst);
+				assertEquals(0, src.remaining());
+				assertEquals(written, dst.position());
+				dst.flip();
+				ByteBuffer back = ByteBuffer.allocate(input.length);
+				assertEquals(input.length, codec.decompress(dst, back));
+				assertArrayEquals(input, back.array());
+			}
+		}
+	}
+
+	@Test
+	public void channelsRoundTrip() throws IOException {
+		for (HuffmanCodec codec: codecs()) {
+			for (byte[] input: HuffProcessorTest.inputs()) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				long written = codec.compress(Channels.newChannel(new ByteArrayInputStream(input)),
+						Channels.newChannel(compressed));
+				assertEquals(compressed.size(), written);
+				ByteArrayOutputStream back = new ByteArrayOutputStream();
+				codec.decompress(Channels.newChannel(new ByteArrayInputStream(compressed.toByteArray())),
+						Channels.newChannel(back));
+				assertArrayEquals(input, back.toByteArray());
+			}
+		}
+	}
+
+	@Test
+	public void maxCompressedLengthHoldsForRandomBytes() {
+		HuffmanCodec codec = new HuffmanCodec(BlockCompressor.MIN_BLOCK_SIZE, 9, null);
+		byte[] input = HuffProcessorTest.random(100000, 5);
+		ByteBuffer dst = ByteBuffer.allocate((int) codec.maxCompressedLength(input.length));
+		assertTrue(codec.compress(ByteBuffer.wrap(input), dst) <= dst.capacity());
+	}
+
+	@Test
+	public void nonBlockingChannelsAreRejected() throws IOException {
+		Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			new HuffmanCodec().decompress(pipe.source(), pipe.sink());
+			fail("a non-blocking channel was accepted");
+		} catch (IllegalArgumentException e) {
+			//expected
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+}
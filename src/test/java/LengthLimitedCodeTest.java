@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that limited codings stay within the limit on counts whose unlimited tree is
+ * much deeper, and still make a prefix code.
+ */
+public class LengthLimitedCodeTest implements IHuffConstants {
+
+	//counts that grow like the Fibonacci numbers give a tree one level deeper per value
+	private static final int VALUES = 20;
+
+	@Test
+	public void lengthsStayWithinTheLimit() throws IOException {
+		long[] freqs = new long[ALPH_SIZE + 1];
+		long[] fibonacci = fibonacci();
+		for (int i = 0; i < VALUES; i++) {
+			freqs[i] = fibonacci[i];
+		}
+		freqs[PSEUDO_EOF] = 1;
+		int[] limits = {BITS_PER_WORD + 1, 12, LengthLimitedCode.DEFAULT_MAX_CODE_LENGTH};
+		for (int limit: limits) {
+			int[] lengths = LengthLimitedCode.lengths(freqs, limit);
+			for (int i = 0; i < lengths.length; i++) {
+				assertTrue(lengths[i] <= limit, "value " + i + " coded in " + lengths[i] + " bits");
+				assertEquals(freqs[i] > 0, lengths[i] > 0, "value " + i);
+			}
+			CanonicalCode.checkPrefixCode(lengths);
+		}
+	}
+
+	@Test
+	public void processorCapsStoredLengths() throws IOException {
+		byte[] data = fibonacciData();
+		SimpleHuffProcessor processor = new SimpleHuffProcessor();
+		processor.setMaxCodeLength(BITS_PER_WORD + 1);
+		processor.preprocessCompress(new ByteArrayInputStream(data), STORE_CANONICAL);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		processor.compress(new ByteArrayInputStream(data), out, true);
+		byte[] compressed = out.toByteArray();
+		//reads the lengths stored after the magic number and header format
+		BitInputStream bis = new BitInputStream(new ByteArrayInputStream(compressed));
+		bis.readBits(BITS_PER_INT);
+		bis.readBits(BITS_PER_INT);
+		int[] lengths = CanonicalCode.readLengths(bis, ALPH_SIZE + 1);
+		int longest = 0;
+		for (int length: lengths) {
+			longest = Math.max(longest, length);
+		}
+		assertEquals(BITS_PER_WORD + 1, longest);
+		assertArrayEquals(data, HuffProcessorTest.uncompress(compressed, null));
+	}
+
+	/**
+	 * @return the first VALUES Fibonacci numbers.
+	 */
+	private static long[] fibonacci() {
+		long[] fibonacci = new long[VALUES];
+		fibonacci[0] = 1;
+		fibonacci[1] = 1;
+		for (int i = 2; i < VALUES; i++) {
+			fibonacci[i] = fibonacci[i - 1] + fibonacci[i - 2];
+		}
+		return fibonacci;
+	}
+
+	/**
+	 * @return data holding each of the first VALUES values as many times as its
+	 * Fibonacci number.
+	 */
+	private static byte[] fibonacciData() {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		long[] fibonacci = fibonacci();
+		for (int i = 0; i < VALUES; i++) {
+			for (long j = 0; j < fibonacci[i]; j++) {
+				data.write(i);
+			}
+		}
+		return data.toByteArray();
+	}
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reads a file through windows much smaller than the file, so every read, skip and
+ * buffer crosses from one window to the next.
+ */
+public class MappedInputStreamTest {
+
+	//a window size that doesn't divide the file, so the last window is short
+	private static final int WINDOW = 1000;
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void readsEveryByteAcrossWindows() throws IOException {
+		byte[] data = HuffProcessorTest.random(10 * WINDOW + 123, 3);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (MappedInputStream in = new MappedInputStream(file(data), WINDOW)) {
+			assertEquals(data.length, in.size());
+			out.write(in.read());
+			byte[] buffer = new byte[777];
+			int read = in.read(buffer, 0, buffer.length);
+			while (read != -1) {
+				out.write(buffer, 0, read);
+				read = in.read(buffer, 0, buffer.length);
+			}
+			assertEquals(0, in.remaining());
+			assertEquals(-1, in.read());
+		}
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	public void skipsWithinAndAcrossWindows() throws IOException {
+		byte[] data = HuffProcessorTest.random(10 * WINDOW + 123, 4);
+		try (MappedInputStream in = new MappedInputStream(file(data), WINDOW)) {
+			//within the first window, then past several, then exactly to a window's end
+			long[] skips = {10, 2500, 490};
+			long position = 0;
+			for (long skip: skips) {
+				assertEquals(skip, in.skip(skip));
+				position += skip;
+				assertEquals(data[(int) position] & 0xff, in.read(), "after skipping to " + position);
+				position++;
+			}
+			assertEquals(data.length - position, in.remaining());
+			//skipping past the end stops at the end
+			assertEquals(data.length - position, in.skip(Long.MAX_VALUE));
+			assertEquals(-1, in.read());
+			assertEquals(0, in.skip(5));
+		}
+	}
+
+	@Test
+	public void buffersNeverCrossAWindow() throws IOException {
+		byte[] data = HuffProcessorTest.random(3 * WINDOW + 10, 5);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (MappedInputStream in = new MappedInputStream(file(data), WINDOW)) {
+			ByteBuffer bytes = in.readBuffer(700);
+			while (bytes != null) {
+				long start = out.size();
+				//a buffer ends at or before the end of the window it starts in
+				assertTrue(bytes.remaining() <= 700 && start / WINDOW == (start + bytes.remaining() - 1) / WINDOW);
+				byte[] copy = new byte[bytes.remaining()];
+				bytes.get(copy);
+				out.write(copy);
+				bytes = in.readBuffer(700);
+			}
+			assertNull(in.readBuffer(700));
+		}
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	public void emptyFilesHaveNoBytes() throws IOException {
+		try (MappedInputStream in = new MappedInputStream(file(new byte[0]), WINDOW)) {
+			assertEquals(-1, in.read());
+			assertEquals(-1, in.read(new byte[4], 0, 4));
+			assertEquals(0, in.skip(1));
+		}
+	}
+
+	@Test
+	public void countsLikeAHeapCopy() throws IOException {
+		byte[] data = HuffProcessorTest.resource("text.txt");
+		Histogram mapped = new Histogram();
+		try (MappedInputStream in = new MappedInputStream(file(data), 100)) {
+			mapped.add(in);
+		}
+		Histogram heap = new Histogram();
+		heap.add(data, 0, data.length);
+		assertArrayEquals(heap.counts(), mapped.counts());
+	}
+
+	/**
+	 * Writes bytes to a file in the temporary directory.
+	 * @param data, the bytes.
+	 * @return the file.
+	 */
+	private File file(byte[] data) throws IOException {
+		File file = new File(dir, "mapped.bin");
+		Files.write(file.toPath(), data);
+		return file;
+	}
+}
@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the throughput, percentiles and ratio of MarkResult on timings made up for
+ * the test.
+ */
+public class MarkResultTest {
+
+	//one millisecond
+	private static final long MS = 1000000;
+
+	@Test
+	public void percentilesAreByNearestRank() {
+		MarkResult result = new MarkResult("a", 1000, 10);
+		//runs of 10, 9, ... 1 ms, out of order
+		for (int run = 10; run >= 1; run--) {
+			result.record(run * MS, 2 * run * MS, 0, 400);
+		}
+		assertEquals(5.0, result.percentileMillis(MarkResult.PREPROCESS, 50), 1e-9);
+		assertEquals(10.0, result.percentileMillis(MarkResult.PREPROCESS, 99), 1e-9);
+		assertEquals(1.0, result.percentileMillis(MarkResult.PREPROCESS, 0), 1e-9);
+		assertEquals(1.0, result.percentileMillis(MarkResult.PREPROCESS, 10), 1e-9);
+		assertEquals(2.0, result.percentileMillis(MarkResult.PREPROCESS, 11), 1e-9);
+		assertEquals(20.0, result.percentileMillis(MarkResult.COMPRESS, 100), 1e-9);
+		assertEquals(0.0, result.percentileMillis(MarkResult.UNCOMPRESS, 50), 1e-9);
+	}
+
+	@Test
+	public void throughputIsBytesOverTime() {
+		MarkResult result = new MarkResult("a", 2000000, 2);
+		result.record(1000 * MS, 500 * MS, 0, 500000);
+		result.record(1000 * MS, 1500 * MS, 0, 500000);
+		//4 MB in 2 seconds, and in 2 seconds again
+		assertEquals(2.0, result.megabytesPerSecond(MarkResult.PREPROCESS), 1e-9);
+		assertEquals(2.0, result.megabytesPerSecond(MarkResult.COMPRESS), 1e-9);
+		assertEquals(0.0, result.megabytesPerSecond(MarkResult.UNCOMPRESS), 1e-9);
+		assertEquals(0.25, result.ratio(), 1e-9);
+	}
+
+	@Test
+	public void totalsCoverEveryRunOfEveryFile() {
+		MarkResult a = new MarkResult("a", 1000000, 2);
+		a.record(1 * MS, 1 * MS, 1 * MS, 500000);
+		a.record(3 * MS, 3 * MS, 3 * MS, 500000);
+		MarkResult b = new MarkResult("b", 3000000, 1);
+		b.record(2 * MS, 2 * MS, 2 * MS, 1000000);
+		List<MarkResult> results = new ArrayList<MarkResult>();
+		results.add(a);
+		results.add(b);
+		MarkResult total = MarkResult.total("TOTAL", results);
+		assertEquals(4000000, total.bytes());
+		assertEquals(1500000, total.compressedBytes());
+		assertEquals(0.375, total.ratio(), 1e-9);
+		//5 MB processed in 6 ms
+		assertEquals(5e6 * 1e3 / (6 * MS), total.megabytesPerSecond(MarkResult.COMPRESS), 1e-9);
+		assertEquals(2.0, total.percentileMillis(MarkResult.COMPRESS, 50), 1e-9);
+		assertEquals(3.0, total.percentileMillis(MarkResult.COMPRESS, 99), 1e-9);
+	}
+
+	@Test
+	public void emptyResultsReportZero() {
+		MarkResult result = new MarkResult("empty", 0, 0);
+		assertEquals(0.0, result.ratio(), 1e-9);
+		assertEquals(0.0, result.megabytesPerSecond(MarkResult.COMPRESS), 1e-9);
+		assertEquals(0.0, result.percentileMillis(MarkResult.COMPRESS, 50), 1e-9);
+	}
+
+	@Test
+	public void reportsQuoteNames() {
+		MarkResult result = new MarkResult("a,\"b\"", 0, 0);
+		assertTrue(result.csvRow().startsWith("\"a,\"\"b\"\"\",0,0,0.000000,"));
+		assertEquals("\"a,\\\"b\\\"\"", MarkResult.jsonString("a,\"b\""));
+		assertEquals("\"\\u0009\"", MarkResult.jsonString("\t"));
+	}
+}
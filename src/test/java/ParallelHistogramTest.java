@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that counting on a pool gives the same counts as a Histogram on one thread.
+ */
+public class ParallelHistogramTest {
+
+	//big enough to split into several segments
+	private static final int SIZE = (9 << 20) + 12345;
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void buffersCountLikeOneThread() {
+		byte[] data = HuffProcessorTest.random(SIZE, 8);
+		ParallelHistogram parallel = new ParallelHistogram(ForkJoinPool.commonPool(), 0);
+		//an offset start shows only the remaining bytes are counted
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.position(1000);
+		Histogram counted = parallel.count(buffer);
+		assertEquals(1000, buffer.position());
+		Histogram expected = new Histogram();
+		expected.add(data, 1000, data.length - 1000);
+		assertArrayEquals(expected.counts(), counted.counts());
+		assertEquals(expected.size(), counted.size());
+	}
+
+	@Test
+	public void filesCountLikeOneThread() throws IOException {
+		byte[] data = HuffProcessorTest.random(SIZE, 9);
+		File file = new File(dir, "count.bin");
+		Files.write(file.toPath(), data);
+		Histogram expected = new Histogram();
+		expected.add(data, 0, data.length);
+		//above and below the threshold
+		long[] thresholds = {0, Long.MAX_VALUE};
+		for (long threshold: thresholds) {
+			Histogram counted = new ParallelHistogram(ForkJoinPool.commonPool(), threshold).count(file);
+			assertArrayEquals(expected.counts(), counted.counts(), "threshold " + threshold);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reads ranges of STORE_SEEKABLE_BLOCKS files, and checks that frames that don't
+ * agree with the index are rejected.
+ */
+public class SeekableBlockReaderTest {
+
+	@TempDir
+	File dir;
+
+	@Test
+	public void rangesMatchTheData() throws IOException {
+		byte[] data = HuffProcessorTest.resource("text.txt");
+		data = Arrays.copyOf(data, 5 * data.length);
+		File file = seekableFile(data);
+		try (SeekableBlockReader reader = new SeekableBlockReader(file)) {
+			assertEquals(data.length, reader.size());
+			//ranges inside one block, across blocks, at both ends and empty
+			long[][] ranges = {{0, 10}, {100, 4000}, {4090, 9000}, {data.length - 7, 7}, {0, data.length}, {500, 0}};
+			for (long[] range: ranges) {
+				int offset = (int) range[0];
+				int length = (int) range[1];
+				assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length),
+						reader.decompressRange(offset, length), "range " + offset + " " + length);
+			}
+		}
+	}
+
+	@Test
+	public void rangesOutsideTheDataAreRejected() throws IOException {
+		File file = seekableFile(HuffProcessorTest.resource("text.txt"));
+		try (SeekableBlockReader reader = new SeekableBlockReader(file)) {
+			reader.decompressRange(reader.size() - 1, 2);
+			fail("a range past the end was accepted");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void framesThatDisagreeWithTheIndexAreRejected() throws IOException {
+		byte[] data = HuffProcessorTest.resource("text.txt");
+		data = Arrays.copyOf(data, 3 * data.length);
+		byte[] good = Files.readAllBytes(seekableFile(data).toPath());
+		long frame = fileOffset(good, 1);
+		//the length and payload size of the second block's frame
+		int[][] edits = {{1, Integer.MAX_VALUE}, {1, -5}, {1, 100}, {5, Integer.MAX_VALUE}, {5, -1}};
+		for (int[] edit: edits) {
+			byte[] bad = good.clone();
+			ByteBuffer.wrap(bad).putInt((int) frame + edit[0], edit[1]);
+			File file = new File(dir, "bad.hf");
+			Files.write(file.toPath(), bad);
+			try {
+				SeekableBlockReader.decompressRange(file, 3000, 6000);
+				fail("a frame with " + edit[1] + " at " + edit[0] + " was accepted");
+			} catch (IOException e) {
+				//expected
+			}
+		}
+	}
+
+	/**
+	 * Compresses data into a seekable block file of the smallest blocks.
+	 * @param data, the bytes to compress.
+	 * @return the file.
+	 */
+	private File seekableFile(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BlockCompressor(BlockCompressor.MIN_BLOCK_SIZE, 12, null, true).compress(new ByteArrayInputStream(data), out);
+		File file = new File(dir, "seekable.hf");
+		Files.write(file.toPath(), out.toByteArray());
+		return file;
+	}
+
+	/**
+	 * Finds where a block starts in a seekable block file from the index at its end.
+	 * @param file, the bytes of the file.
+	 * @param block, the number of the block.
+	 * @return the offset of the block's frame.
+	 */
+	private static long fileOffset(byte[] file, int block) {
+		ByteBuffer buffer = ByteBuffer.wrap(file);
+		long indexStart = buffer.getLong(file.length - BlockIndex.TRAILER_SIZE);
+		//skips the block count and data size, then the data offset of each entry
+		int entry = (int) indexStart + Integer.BYTES + Long.BYTES + block * 2 * Long.BYTES;
+		return buffer.getLong(entry + Long.BYTES);
+	}
+}